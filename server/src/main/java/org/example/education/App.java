@@ -1,19 +1,34 @@
 package org.example.education;
 
+import ch.qos.logback.classic.LoggerContext;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import org.example.education.config.ServerConfig;
 import org.example.education.controller.*;
 import org.example.education.dao.*;
 import org.example.education.filter.AuthenticationFilter;
 import org.example.education.service.*;
+import org.example.education.util.AsyncAuditAppender;
 import org.example.education.util.JsonUtil;
 import org.example.education.util.JwtUtil;
+import org.example.education.util.Metrics;
+import org.example.education.util.PasswordHashingPool;
+import org.example.education.util.PasswordUtil;
+import org.example.education.util.RouteTemplates;
+import org.example.education.util.VirtualThreadPool;
+import org.eclipse.jetty.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import spark.Request;
 import spark.Spark;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
 
 import static spark.Spark.*;
 
@@ -32,10 +47,18 @@ public class App {
 
         logger.info("Starting Educational Institution Server...");
 
+        // Флаг --embedded-db включает встроенный PostgreSQL (до первого обращения к ServerConfig)
+        if (Arrays.asList(args).contains("--embedded-db")) {
+            System.setProperty("db.mode", "embedded");
+        }
+
         // 1. Загрузка конфигурации
         logger.info("Server port from config: {}", ServerConfig.getServerPort());
         logger.info("JWT Issuer: {}", ServerConfig.getJwtIssuer());
-        logger.info("Database URL: {}", ServerConfig.getDbUrl());
+
+        // Стоимость BCrypt подбирается под этот сервер до первого хеширования (в том числе seed встроенной БД)
+        calibratePasswordHashing();
+        logger.info("Database URL: {}", ServerConfig.isEmbeddedDb() ? "embedded PostgreSQL" : ServerConfig.getDbUrl());
 
         // 2. Инициализация менеджера БД
         try {
@@ -46,12 +69,36 @@ public class App {
             System.exit(1);
         }
 
+        // Миграции схемы применяются до создания DAO: запросы рассчитывают на таблицы и индексы последней версии
+        if (ServerConfig.isDbMigrateOnStartup()) {
+            try (Connection conn = DatabaseManager.getConnection()) {
+                int applied = MigrationRunner.migrate(conn);
+                logger.info("Database schema is up to date ({} migrations applied).", applied);
+            } catch (Exception e) {
+                logger.error("Failed to apply database migrations. Exiting.", e);
+                System.exit(1);
+            }
+        }
+
         // 3. Настройка SparkJava
+        if (ServerConfig.isServerVirtualThreads()) {
+            // Jetty выполняет каждый запрос в виртуальном потоке; одновременные обращения к БД ограничивает пул Hikari
+            EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, new EmbeddedJettyFactory().withThreadPool(new VirtualThreadPool()));
+            logger.info("Request handling mode: virtual threads.");
+        }
         port(ServerConfig.getServerPort());
         ipAddress(ServerConfig.getServerIp());
 
-        // 4. Инициализация JwtUtil
+        // 4. Инициализация JwtUtil и отзыва токенов (отзывы загружаются из БД и проверяются в памяти)
         JwtUtil jwtUtil = new JwtUtil();
+        TokenRevocationService tokenRevocationService = new TokenRevocationService(new RevokedTokenDao());
+        RefreshTokenService refreshTokenService = new RefreshTokenService(new RefreshTokenDao());
+        try {
+            tokenRevocationService.start();
+        } catch (Exception e) {
+            logger.error("Failed to load revoked tokens. Exiting.", e);
+            System.exit(1);
+        }
 
         // 5. Настройка CORS
         // Передаем сюда строки из server.properties или используем '*'
@@ -62,24 +109,19 @@ public class App {
 
         // 6. Глобальные фильтры (до и после)
         before((request, response) -> {
-            // Записывает время начала обработки запроса в атрибут.
-            long startTime = System.currentTimeMillis();
-            request.attribute("startTime", startTime);
+            // Записывает время начала обработки запроса в атрибут (nanoTime монотонен, в отличие от currentTimeMillis).
+            request.attribute("startNanos", System.nanoTime());
+            DatabaseManager.beginRequest();
         });
 
         // Фильтр аутентификации - он будет применен ПОСЛЕ enableCORS.
         // Для OPTIONS запросов он теперь будет делать return в самом начале.
-        before("/api/*", new AuthenticationFilter(jwtUtil));
+        before("/api/*", new AuthenticationFilter(jwtUtil, tokenRevocationService));
 
         // After-фильтр для логирования ответа
         after((request, response) -> {
             // Логирует информацию о запросе и ответе, включая время обработки, статус, URI, и данные пользователя.
-            long startTime = 0L;
-            Object startTimeAttr = request.attribute("startTime");
-            if (startTimeAttr instanceof Long) {
-                startTime = (Long) startTimeAttr;
-            }
-            long duration = System.currentTimeMillis() - startTime;
+            long duration = TimeUnit.NANOSECONDS.toMillis(elapsedNanos(request));
 
             auditLogger.info("RES {} {} {} {}ms (User: {}, Email: {}, IP: {})",
                     request.requestMethod(),
@@ -93,33 +135,79 @@ public class App {
             response.header("X-Response-Time", String.valueOf(duration));
         });
 
+        // Выполняется всегда, в том числе после halt(): если в запросе не дождались соединения из пула,
+        // вместо ответа контроллера (обычно 500 или пустой результат) отдается 503; затем запрос отвязывается от потока
+        afterAfter((request, response) -> {
+            if (DatabaseManager.isPoolTimeoutInRequest() && !response.raw().isCommitted()) {
+                auditLogger.warn("Database pool exhausted: {} {} answered with 503 (was {}).",
+                        request.requestMethod(), request.uri(), response.status());
+                response.status(HttpStatus.SERVICE_UNAVAILABLE_503);
+                response.type("application/json");
+                response.header("Retry-After", "1");
+                response.body(JsonUtil.toJson(Collections.singletonMap("error", "Service temporarily unavailable: database is busy. Please retry.")));
+            }
+            // Метрики пишутся здесь, а не в after: after не выполняется после halt() (401, 403, 404 из контроллеров)
+            Metrics.recordRequest(request.requestMethod(), RouteTemplates.resolve(request.requestMethod(), request.uri()),
+                    response.status(), elapsedNanos(request));
+            DatabaseManager.endRequest();
+        });
+
 
         // 7. Инициализация DAO
         StudentDao studentDao = new StudentDao();
-        EmployeeDao employeeDao = new EmployeeDao();
+        CredentialDao credentialDao = new CredentialDao();
         CourseDao courseDao = new CourseDao();
         EnrollmentDao enrollmentDao = new EnrollmentDao();
         GradeDao gradeDao = new GradeDao();
         DocumentDao documentDao = new DocumentDao();
+        GradeSummaryDao gradeSummaryDao = new GradeSummaryDao();
+
+        // Полный пересчет сводки GPA учитывает изменения оценок, сделанные в обход API, пока сервер не работал
+        if (ServerConfig.isGradeSummaryRebuildOnStartup()) {
+            rebuildGradeSummary(gradeSummaryDao);
+        }
 
         // 8. Инициализация сервисов
-        AuthService authService = new AuthService(studentDao, employeeDao, jwtUtil);
+        AuthService authService = new AuthService(credentialDao, jwtUtil, tokenRevocationService, refreshTokenService);
         StudentService studentService = new StudentService(studentDao);
-        CourseService courseService = new CourseService(courseDao);
-        EnrollmentService enrollmentService = new EnrollmentService(enrollmentDao, studentDao, courseDao);
-        GradeService gradeService = new GradeService(gradeDao, enrollmentDao);
+        StudentImportService studentImportService = new StudentImportService(studentDao);
+        CourseService courseService = new CourseService(courseDao, enrollmentDao, gradeSummaryDao);
+        EnrollmentService enrollmentService = new EnrollmentService(enrollmentDao, gradeSummaryDao);
+        GradeService gradeService = new GradeService(gradeDao, enrollmentDao, gradeSummaryDao);
         DocumentService documentService = new DocumentService(documentDao, studentDao);
 
         // 9. Инициализация контроллеров
         new AuthController(authService);
-        new StudentController(studentService);
+        new StudentController(studentService, studentImportService);
         new CourseController(courseService);
         new EnrollmentController(enrollmentService);
         new GradeController(gradeService, enrollmentService);
         new DocumentController(documentService);
+        if (ServerConfig.isMetricsEnabled()) {
+            new MetricsController();
+            // Заполненность очередей асинхронного журнала аудита (файл и консоль) и число отброшенных событий
+            ((ch.qos.logback.classic.Logger) auditLogger).iteratorForAppenders().forEachRemaining(auditAppender -> {
+                if (auditAppender instanceof AsyncAuditAppender) {
+                    ((AsyncAuditAppender) auditAppender).bindTo(Metrics.registry());
+                }
+            });
+            jwtUtil.bindMetrics(Metrics.registry()); // Попадания/промахи кэша проверенных JWT
+            tokenRevocationService.bindTo(Metrics.registry());
+            credentialDao.bindMetrics(Metrics.registry()); // Отрицательный кэш несуществующих email при входе
+        }
 
 
         // 10. Обработчики исключений
+        exception(PasswordHashingPool.OverloadedException.class, (exception, request, response) -> {
+            // Очередь BCrypt заполнена (всплеск входов): быстрый 503 вместо ожидания, клиент повторит позже
+            auditLogger.warn("Password hashing overloaded: {} {} from IP {} answered with 503.",
+                    request.requestMethod(), request.pathInfo(), request.ip());
+            response.status(HttpStatus.SERVICE_UNAVAILABLE_503);
+            response.type("application/json");
+            response.header("Retry-After", "1");
+            response.body(JsonUtil.toJson(Collections.singletonMap("error", "Service temporarily unavailable: " + exception.getMessage())));
+        });
+
         exception(Exception.class, (exception, request, response) -> {
             // Обрабатывает необработанные исключения, логирует их и возвращает клиенту сообщение об ошибке.
             logger.error("Unhandled exception for request {} {}: ", request.requestMethod(), request.pathInfo(), exception);
@@ -142,12 +230,13 @@ public class App {
 
         logger.info("Server configuration complete. SparkJava is initializing routes...");
         Spark.awaitInitialization();
+        RouteTemplates.init(); // Все маршруты зарегистрированы: снимаем их шаблоны для меток метрик
         logger.info("Server started successfully on http://{}:{}", ServerConfig.getServerIp(), ServerConfig.getServerPort());
         auditLogger.info("SERVER_STARTED on http://{}:{}", ServerConfig.getServerIp(), ServerConfig.getServerPort());
 
 
         // 11. Консольное управление
-        startConsoleAdminThread();
+        startConsoleAdminThread(studentDao, jwtUtil, authService, gradeSummaryDao);
 
         // 12. Очистка ресурсов при завершении работы
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -155,12 +244,46 @@ public class App {
             logger.info("Shutting down server...");
             auditLogger.info("SERVER_STOPPING...");
             Spark.stop();
+            tokenRevocationService.shutdown();
+            refreshTokenService.shutdown();
+            PasswordHashingPool.shutdown();
+            studentImportService.shutdown();
             DatabaseManager.closeDataSource();
             logger.info("Server stopped successfully.");
             auditLogger.info("SERVER_STOPPED.");
+            // Остановка Logback дописывает события, оставшиеся в буфере асинхронного аудита
+            if (LoggerFactory.getILoggerFactory() instanceof LoggerContext) {
+                ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+            }
         }, "ShutdownHookThread"));
     }
 
+    private static void calibratePasswordHashing() {
+        // Границы приводятся к диапазону BCrypt, иначе gensalt упадет при первом хешировании
+        int maxCost = Math.max(PasswordUtil.MIN_COST, Math.min(PasswordUtil.MAX_COST, ServerConfig.getBcryptMaxCost()));
+        int minCost = Math.max(PasswordUtil.MIN_COST, Math.min(maxCost, ServerConfig.getBcryptMinCost()));
+        Integer fixedCost = ServerConfig.getBcryptFixedCost();
+        if (fixedCost != null) {
+            // Стоимость вне [min.cost, max.cost] не применяется: хеши выше max.cost перехешировались бы при каждом входе
+            int cost = Math.max(minCost, Math.min(maxCost, fixedCost));
+            if (cost != fixedCost) {
+                logger.warn("auth.bcrypt.cost={} is outside [{}, {}], using {}.", fixedCost, minCost, maxCost, cost);
+            }
+            PasswordUtil.useFixedWorkload(cost);
+            logger.info("BCrypt cost fixed by configuration: {}.", cost);
+            return;
+        }
+        PasswordUtil.Calibration calibration = PasswordUtil.calibrate(ServerConfig.getBcryptTargetMillis(), minCost, maxCost);
+        logger.info("BCrypt cost calibrated: {} (measured {} ms at cost {}, estimated {} ms, target {} ms).",
+                calibration.getCost(), String.format("%.1f", calibration.getSampleMillis()), calibration.getSampleCost(),
+                Math.round(calibration.getEstimatedMillis()), calibration.getTargetMillis());
+    }
+
+    private static long elapsedNanos(Request request) {
+        Long startNanos = request.attribute("startNanos");
+        return startNanos != null ? System.nanoTime() - startNanos : 0L;
+    }
+
     private static void enableCORS(final String origin, final String methods, final String headers) {
         // Настраивает CORS для указанных origin, methods и headers.
         options("/*", (request, response) -> {
@@ -191,7 +314,20 @@ public class App {
         });
     }
 
-    private static void startConsoleAdminThread() {
+    private static boolean rebuildGradeSummary(GradeSummaryDao gradeSummaryDao) {
+        try {
+            long rebuildStart = System.currentTimeMillis();
+            int summaryRows = gradeSummaryDao.rebuildAll();
+            logger.info("Grade summary rebuilt for {} students in {} ms.", summaryRows, System.currentTimeMillis() - rebuildStart);
+            return true;
+        } catch (RuntimeException e) {
+            logger.error("Failed to rebuild grade summary; summaries may be stale: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static void startConsoleAdminThread(StudentDao studentDao, JwtUtil jwtUtil, AuthService authService,
+                                                GradeSummaryDao gradeSummaryDao) {
         // Запускает консольный интерфейс администратора для управления сервером.
         Thread consoleThread = new Thread(() -> {
             Scanner scanner = new Scanner(System.in);
@@ -228,11 +364,47 @@ public class App {
                             }
                             System.out.println("-----------------------");
                             break;
+                        case "cache":
+                            CacheStats stats = studentDao.getCacheStats();
+                            System.out.println("---- Student Cache ----");
+                            System.out.println("  Size: " + studentDao.getCacheSize() + " / " + ServerConfig.getStudentCacheMaxSize());
+                            System.out.printf("  Hits: %d, Misses: %d, Hit rate: %.1f%%%n", stats.hitCount(), stats.missCount(), stats.hitRate() * 100);
+                            System.out.println("  Evictions: " + stats.evictionCount());
+                            CacheStats tokenStats = jwtUtil.getTokenCacheStats();
+                            System.out.println("---- Verified JWT Cache ----");
+                            System.out.println("  Size: " + jwtUtil.getTokenCacheSize() + " / " + ServerConfig.getJwtCacheMaxSize());
+                            System.out.printf("  Hits: %d, Misses: %d, Hit rate: %.1f%%%n", tokenStats.hitCount(), tokenStats.missCount(), tokenStats.hitRate() * 100);
+                            System.out.println("-----------------------");
+                            break;
+                        case "bcrypt":
+                            PasswordUtil.Calibration calibration = PasswordUtil.getCalibration();
+                            System.out.println("---- BCrypt Cost ----");
+                            System.out.println("  Current cost: " + PasswordUtil.getWorkload());
+                            if (calibration == null || calibration.isFixed()) {
+                                System.out.println("  Mode: fixed (auth.bcrypt.cost)");
+                            } else {
+                                System.out.println("  Mode: calibrated, target " + calibration.getTargetMillis() + " ms");
+                                System.out.printf("  Measured: %.1f ms at cost %d, estimated %.0f ms at cost %d%n",
+                                        calibration.getSampleMillis(), calibration.getSampleCost(),
+                                        calibration.getEstimatedMillis(), calibration.getCost());
+                            }
+                            System.out.println("  Allowed range: " + ServerConfig.getBcryptMinCost() + ".." + ServerConfig.getBcryptMaxCost());
+                            System.out.println("  Passwords rehashed since start: " + authService.getRehashedPasswordCount());
+                            System.out.println("-----------------------");
+                            break;
+                        case "gpa-rebuild":
+                            System.out.println("Rebuilding grade summary for all students...");
+                            System.out.println(rebuildGradeSummary(gradeSummaryDao)
+                                    ? "Grade summary rebuilt." : "Grade summary rebuild failed, see the server log.");
+                            break;
                         case "help":
                             System.out.println("Available commands:");
-                            System.out.println("  status - Show server status and basic metrics.");
-                            System.out.println("  stop   - Stop the server gracefully.");
-                            System.out.println("  exit   - Alias for stop.");
+                            System.out.println("  status      - Show server status and basic metrics.");
+                            System.out.println("  cache       - Show student and verified JWT cache size and hit/miss stats.");
+                            System.out.println("  bcrypt      - Show BCrypt cost calibration and rehash count.");
+                            System.out.println("  gpa-rebuild - Recompute the GPA summary of all students from their grades.");
+                            System.out.println("  stop        - Stop the server gracefully.");
+                            System.out.println("  exit        - Alias for stop.");
                             break;
                         default:
                             System.out.println("Unknown command: '" + command + "'. Type 'help' for available commands.");
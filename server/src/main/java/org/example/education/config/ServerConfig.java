@@ -16,51 +16,215 @@ public class ServerConfig {
         // Статический блок инициализации: загружает конфигурацию сервера из файла server.properties.
         try (InputStream input = ServerConfig.class.getClassLoader().getResourceAsStream(CONFIG_FILE)) {
             if (input == null) {
-                logger.error("Sorry, unable to find " + CONFIG_FILE);
-                throw new RuntimeException("Configuration file " + CONFIG_FILE + " not found in classpath.");
+                // Во встроенном режиме БД сервер может стартовать и без файла, на значениях по умолчанию
+                if (!isEmbeddedDb()) {
+                    logger.error("Sorry, unable to find " + CONFIG_FILE);
+                    throw new RuntimeException("Configuration file " + CONFIG_FILE + " not found in classpath.");
+                }
+                logger.warn("{} not found in classpath. Using defaults with embedded database.", CONFIG_FILE);
+            } else {
+                properties.load(input);
+                logger.info("Server configuration loaded successfully from {}", CONFIG_FILE);
             }
-            properties.load(input);
-            logger.info("Server configuration loaded successfully from {}", CONFIG_FILE);
         } catch (IOException ex) {
             logger.error("Error loading server configuration", ex);
             throw new RuntimeException("Error loading configuration file " + CONFIG_FILE, ex);
         }
     }
 
+    private static String getProperty(String key) {
+        // Системные свойства (-Dkey=value) имеют приоритет над server.properties.
+        return System.getProperty(key, properties.getProperty(key));
+    }
+
+    private static String getProperty(String key, String defaultValue) {
+        String value = getProperty(key);
+        return value != null ? value : defaultValue;
+    }
+
     public static int getServerPort() {
         // Возвращает порт сервера из файла конфигурации, по умолчанию 8080.
-        return Integer.parseInt(properties.getProperty("server.port", "8080"));
+        return Integer.parseInt(getProperty("server.port", "8080"));
     }
 
     public static String getServerIp() {
         // Возвращает IP-адрес сервера из файла конфигурации, по умолчанию "0.0.0.0".
-        return properties.getProperty("server.ip", "0.0.0.0");
+        return getProperty("server.ip", "0.0.0.0");
+    }
+
+    public static boolean isServerVirtualThreads() {
+        // Модель потоков Jetty: "platform" (по умолчанию) - пул платформенных потоков, "virtual" - виртуальный поток на запрос.
+        return "virtual".equalsIgnoreCase(getProperty("server.threads", "platform"));
+    }
+
+    public static boolean isMetricsEnabled() {
+        // Отдавать ли метрики в формате Prometheus на GET /metrics, по умолчанию да.
+        return Boolean.parseBoolean(getProperty("metrics.enabled", "true"));
+    }
+
+    public static boolean isEmbeddedDb() {
+        // Режим БД: "external" (по умолчанию) - внешний PostgreSQL, "embedded" - встроенный PostgreSQL в процессе сервера.
+        return "embedded".equalsIgnoreCase(getProperty("db.mode", "external"));
+    }
+
+    public static boolean isDbMigrateOnStartup() {
+        // Применять ли миграции схемы (db/migration) при старте сервера, по умолчанию да.
+        return Boolean.parseBoolean(getProperty("db.migrate.on.startup", "true"));
+    }
+
+    public static boolean isGradeSummaryRebuildOnStartup() {
+        // Полный пересчет сводки GPA при старте (после правки оценок в обход API), по умолчанию нет:
+        // на большой базе он надолго задерживает запуск. Вручную - команда консоли gpa-rebuild.
+        return Boolean.parseBoolean(getProperty("grades.summary.rebuild.on.startup", "false"));
+    }
+
+    public static int getDbEmbeddedPort() {
+        // Возвращает порт встроенного PostgreSQL, 0 - любой свободный порт.
+        return Integer.parseInt(getProperty("db.embedded.port", "0"));
+    }
+
+    public static boolean isDbEmbeddedSeed() {
+        // Заполнять ли встроенную БД тестовыми данными (администратор и курсы), по умолчанию да.
+        return Boolean.parseBoolean(getProperty("db.embedded.seed", "true"));
+    }
+
+    public static int getDbEmbeddedSeedStudents() {
+        // Возвращает число синтетических студентов для встроенной БД (для бенчмарков), по умолчанию 0.
+        return Integer.parseInt(getProperty("db.embedded.seed.students", "0"));
     }
 
     public static String getDbUrl() {
         // Возвращает URL базы данных из файла конфигурации.
-        return properties.getProperty("db.url");
+        return getProperty("db.url");
     }
 
     public static String getDbUsername() {
         // Возвращает имя пользователя базы данных из файла конфигурации.
-        return properties.getProperty("db.username");
+        return getProperty("db.username");
     }
 
     public static String getDbPassword() {
         // Возвращает пароль базы данных из файла конфигурации.
-        return properties.getProperty("db.password");
+        return getProperty("db.password");
     }
 
     public static int getDbPoolSize() {
         // Возвращает размер пула соединений базы данных из файла конфигурации, по умолчанию 5.
-        return Integer.parseInt(properties.getProperty("db.pool.size", "5"));
+        return Integer.parseInt(getProperty("db.pool.size", "5"));
+    }
+
+    public static String getDbReplicaUrl() {
+        // Возвращает URL реплики для чтения; null или пусто - реплика не используется.
+        String url = getProperty("db.replica.url");
+        return (url == null || url.isBlank()) ? null : url;
+    }
+
+    public static String getDbReplicaUsername() {
+        // Возвращает имя пользователя реплики, по умолчанию как у основной БД.
+        return getProperty("db.replica.username", getDbUsername());
+    }
+
+    public static String getDbReplicaPassword() {
+        // Возвращает пароль реплики, по умолчанию как у основной БД.
+        return getProperty("db.replica.password", getDbPassword());
+    }
+
+    public static int getDbReplicaPoolSize() {
+        // Возвращает размер пула реплики, по умолчанию как у основного пула.
+        return Integer.parseInt(getProperty("db.replica.pool.size", String.valueOf(getDbPoolSize())));
+    }
+
+    public static long getDbPoolConnectionTimeoutMillis() {
+        // Возвращает максимальное ожидание свободного соединения из пула, по умолчанию 5 секунд (после него - 503).
+        return Long.parseLong(getProperty("db.pool.connection.timeout.ms", "5000"));
+    }
+
+    public static long getDbReplicaPinMillis() {
+        // Возвращает окно read-your-writes: сколько пользователь читает с основной БД после своей записи, по умолчанию 5 секунд.
+        return Long.parseLong(getProperty("db.replica.pin.seconds", "5")) * 1000L;
+    }
+
+    public static long getStudentCacheMaxSize() {
+        // Возвращает максимальное число студентов в кэше StudentDao.findById, по умолчанию 10000.
+        return Long.parseLong(getProperty("cache.students.max.size", "10000"));
+    }
+
+    public static long getStudentCacheTtlSeconds() {
+        // Возвращает время жизни записи в кэше студентов в секундах, по умолчанию 300.
+        return Long.parseLong(getProperty("cache.students.ttl.seconds", "300"));
+    }
+
+    public static long getJwtCacheMaxSize() {
+        // Максимальное число проверенных JWT в кэше AuthenticationFilter, по умолчанию 10000.
+        return Long.parseLong(getProperty("cache.jwt.max.size", "10000"));
+    }
+
+    public static int getAuthHashingThreads() {
+        // Возвращает число потоков для BCrypt (вход, регистрация), по умолчанию число ядер.
+        return Integer.parseInt(getProperty("auth.hashing.threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+    }
+
+    public static int getImportHashingThreads() {
+        // Возвращает число потоков BCrypt для массового импорта, по умолчанию четверть ядер (не меньше 1),
+        // чтобы импорт не отнимал процессор у входов и смены паролей.
+        return Integer.parseInt(getProperty("import.hashing.threads", String.valueOf(Math.max(1, Runtime.getRuntime().availableProcessors() / 4))));
+    }
+
+    public static int getAuthHashingQueueSize() {
+        // Возвращает максимальную очередь проверок пароля, сверх нее - 503, по умолчанию 64.
+        return Integer.parseInt(getProperty("auth.hashing.queue.size", "64"));
+    }
+
+    public static Integer getBcryptFixedCost() {
+        // Явно заданная стоимость BCrypt; если не задана (null), стоимость подбирается калибровкой при старте.
+        String cost = getProperty("auth.bcrypt.cost");
+        return cost == null || cost.isBlank() ? null : Integer.parseInt(cost.trim());
+    }
+
+    public static long getBcryptTargetMillis() {
+        // Целевое время одного хеширования пароля для калибровки, по умолчанию 250 мс.
+        return Long.parseLong(getProperty("auth.bcrypt.target.ms", "250"));
+    }
+
+    public static int getBcryptMinCost() {
+        // Нижняя граница стоимости BCrypt при калибровке, по умолчанию 10.
+        return Integer.parseInt(getProperty("auth.bcrypt.min.cost", "10"));
+    }
+
+    public static int getBcryptMaxCost() {
+        // Верхняя граница стоимости BCrypt; хеши дороже нее перехешируются при входе, по умолчанию 14.
+        return Integer.parseInt(getProperty("auth.bcrypt.max.cost", "14"));
+    }
+
+    public static long getRefreshTokenTtlMillis() {
+        // Время жизни refresh-токена (отсчитывается заново при каждом обновлении сессии), по умолчанию 14 дней.
+        return Long.parseLong(getProperty("auth.refresh.ttl.days", "14")) * 24 * 60 * 60 * 1000L;
+    }
+
+    public static long getRevocationExpectedTokens() {
+        // Ожидаемое число одновременно отозванных токенов, под него рассчитан фильтр Блума, по умолчанию 100000.
+        return Long.parseLong(getProperty("auth.revocation.expected.tokens", "100000"));
+    }
+
+    public static long getRevocationSyncSeconds() {
+        // Период загрузки отзывов других экземпляров и очистки истекших, в секундах, по умолчанию 30.
+        return Long.parseLong(getProperty("auth.revocation.sync.seconds", "30"));
+    }
+
+    public static long getUnknownEmailCacheMaxSize() {
+        // Максимальное число запомненных несуществующих email (отрицательный кэш входа), по умолчанию 100000.
+        return Long.parseLong(getProperty("cache.auth.unknown.max.size", "100000"));
+    }
+
+    public static long getUnknownEmailCacheTtlSeconds() {
+        // Сколько email считается несуществующим без запроса к БД, в секундах, по умолчанию 60.
+        return Long.parseLong(getProperty("cache.auth.unknown.ttl.seconds", "60"));
     }
 
     public static String getJwtSecretKey() {
         // Возвращает секретный ключ JWT из файла конфигурации.
         // Если ключ не задан или слишком короткий, возвращает небезопасный ключ по умолчанию и предупреждает в лог.
-        String key = properties.getProperty("jwt.secretKey");
+        String key = getProperty("jwt.secretKey");
         if (key == null || key.length() < 32) { // 32 байта = 256 бит, минимум для HS256
             logger.warn("JWT secret key is not set or too short in server.properties. Using a default insecure key. PLEASE CONFIGURE A STRONG KEY!");
             return "DefaultInsecureSecretKeyPleaseChangeImmediatelyAndMakeItLong";
@@ -70,11 +234,11 @@ public class ServerConfig {
 
     public static String getJwtIssuer() {
         // Возвращает издателя JWT из файла конфигурации, по умолчанию "org.example.education.api".
-        return properties.getProperty("jwt.issuer", "org.example.education.api");
+        return getProperty("jwt.issuer", "org.example.education.api");
     }
 
     public static long getJwtExpirationMillis() {
         // Возвращает время жизни JWT в миллисекундах из файла конфигурации, по умолчанию 60 минут.
-        return Long.parseLong(properties.getProperty("jwt.expiration.minutes", "60")) * 60 * 1000L;
+        return Long.parseLong(getProperty("jwt.expiration.minutes", "60")) * 60 * 1000L;
     }
 }
\ No newline at end of file
@@ -11,6 +11,7 @@ import spark.Request;
 import spark.Response;
 
 import java.util.Collections;
+import java.util.Map;
 import java.util.Optional;
 
 import static spark.Spark.halt;
@@ -30,6 +31,7 @@ public class AuthController {
 
     private void setupRoutes() {
         post("/api/auth/login", this::login, JsonUtil.jsonResponseTransformer());
+        post("/api/auth/refresh", this::refresh, JsonUtil.jsonResponseTransformer());
         post("/api/auth/logout", this::logout, JsonUtil.jsonResponseTransformer());
     }
 
@@ -58,19 +60,54 @@ public class AuthController {
         }
     }
 
+    // Тело: {"refreshToken": "..."}. Ответ - новая сессия с новыми access- и refresh-токенами
+    private Object refresh(Request request, Response response) {
+        response.type("application/json");
+        String refreshToken = readRefreshToken(request);
+        if (refreshToken == null) {
+            auditLogger.warn("Session refresh failed (bad request) from IP: {}", request.ip());
+            halt(400, JsonUtil.toJson(Collections.singletonMap("error", "Bad request: refreshToken is required")));
+            return null;
+        }
+        Optional<Session> sessionOpt = authService.refresh(refreshToken);
+        if (sessionOpt.isPresent()) {
+            response.status(200);
+            return sessionOpt.get();
+        }
+        auditLogger.warn("Session refresh failed from IP: {}", request.ip());
+        response.status(401);
+        return Collections.singletonMap("error", "Invalid or expired refresh token");
+    }
+
+    // refreshToken из JSON-тела; null, если тела нет или оно некорректно
+    private String readRefreshToken(Request request) {
+        String body = request.body();
+        if (body == null || body.isBlank()) {
+            return null;
+        }
+        try {
+            Object value = JsonUtil.fromJson(body, Map.class).get("refreshToken");
+            return value instanceof String && !((String) value).isEmpty() ? (String) value : null;
+        } catch (Exception e) {
+            logger.warn("Failed to parse refresh token request body: {}", e.getMessage());
+            return null;
+        }
+    }
+
     private Object logout(Request request, Response response) {
         String authHeader = request.headers("Authorization");
         String token = null;
         if (authHeader != null && authHeader.startsWith("Bearer ")) {
             token = authHeader.substring(7);
         }
-        authService.logout(token); // AuthService.logout может логировать, но для JWT ничего не делает с токеном
+        // Токен отзывается и больше не принимается сервером; refreshToken из тела (если передан) - тоже
+        authService.logout(token, readRefreshToken(request));
 
         Integer userId = request.attribute("userId"); // Это будет доступно, если фильтр аутентификации прошел до этого
         String userEmail = request.attribute("userEmail");
 
-        auditLogger.info("Logout request processed for user ID: {}, Email: {}. Client should clear token.", userId, userEmail);
+        auditLogger.info("Logout request processed for user ID: {}, Email: {}. Token revoked.", userId, userEmail);
         response.status(200);
-        return Collections.singletonMap("message", "Logged out successfully. Please clear your token on the client-side.");
+        return Collections.singletonMap("message", "Logged out successfully. The token has been revoked.");
     }
 }
\ No newline at end of file
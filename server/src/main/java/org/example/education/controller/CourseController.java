@@ -32,9 +32,10 @@ public class CourseController {
         put("/api/courses/:id", this::updateCourse, JsonUtil.jsonResponseTransformer());
         delete("/api/courses/:id", this::deleteCourse, JsonUtil.jsonResponseTransformer());
 
-        // Получение информации о курсах доступно всем аутентифицированным пользователям
-        get("/api/courses", this::getAllCourses, JsonUtil.jsonResponseTransformer());
-        get("/api/courses/:id", this::getCourseById, JsonUtil.jsonResponseTransformer());
+        // Получение информации о курсах доступно всем аутентифицированным пользователям.
+        // Без трансформера: отдаются готовые JSON-байты из снимка каталога в CourseService
+        get("/api/courses", this::getAllCourses);
+        get("/api/courses/:id", this::getCourseById);
     }
 
     private boolean isAdmin(Request request) {
@@ -88,7 +89,7 @@ public class CourseController {
         // Доступно всем аутентифицированным пользователям
         auditLogger.info("User ID {} (Type: {}, Role: {}) requesting all courses.",
                 request.attribute("userId"), request.attribute("userType"), request.attribute("userRole"));
-        return courseService.getAllCourses();
+        return courseService.getAllCoursesJson();
     }
 
     private Object getCourseById(Request request, Response response) {
@@ -105,14 +106,14 @@ public class CourseController {
         auditLogger.info("User ID {} (Type: {}, Role: {}) requesting course by ID: {}",
                 request.attribute("userId"), request.attribute("userType"), request.attribute("userRole"), courseId);
 
-        Optional<Course> courseOpt = courseService.getCourseById(courseId);
-        if (courseOpt.isPresent()) {
+        Optional<byte[]> courseJson = courseService.getCourseJsonById(courseId);
+        if (courseJson.isPresent()) {
             response.status(HttpStatus.OK_200);
-            return courseOpt.get();
+            return courseJson.get();
         } else {
             auditLogger.warn("Course ID {} not found for request by User ID {}.", courseId, request.attribute("userId"));
             response.status(HttpStatus.NOT_FOUND_404);
-            return Collections.singletonMap("error", "Course not found");
+            return JsonUtil.toJson(Collections.singletonMap("error", "Course not found"));
         }
     }
 
@@ -1,5 +1,6 @@
 package org.example.education.controller;
 
+import org.example.education.model.BatchItemResult;
 import org.example.education.model.StudentCourse;
 import org.example.education.model.UserType;
 import org.example.education.service.EnrollmentService;
@@ -10,8 +11,10 @@ import org.slf4j.LoggerFactory;
 import spark.Request;
 import spark.Response;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.List; // Добавлен импорт
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 
@@ -20,6 +23,9 @@ import static spark.Spark.*;
 public class EnrollmentController {
     private static final Logger logger = LoggerFactory.getLogger(EnrollmentController.class);
     private static final Logger auditLogger = LoggerFactory.getLogger("AUDIT");
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final int MAX_BULK_SIZE = 10000;
     private final EnrollmentService enrollmentService;
 
     public EnrollmentController(EnrollmentService enrollmentService) {
@@ -35,11 +41,13 @@ public class EnrollmentController {
 
     private void setupRoutes() {
         post("/api/enrollments", this::enrollStudent, JsonUtil.jsonResponseTransformer());
+        post("/api/enrollments/bulk", this::bulkEnroll, JsonUtil.jsonResponseTransformer());
+        post("/api/enrollments/bulk/unenroll", this::bulkUnenroll, JsonUtil.jsonResponseTransformer());
         delete("/api/enrollments/:enrollmentId", this::unenrollStudent, JsonUtil.jsonResponseTransformer());
         get("/api/enrollments/:enrollmentId", this::getEnrollmentById, JsonUtil.jsonResponseTransformer());
         get("/api/students/:studentId/enrollments", this::getEnrollmentsForStudent, JsonUtil.jsonResponseTransformer());
         get("/api/courses/:courseId/enrollments", this::getEnrollmentsForCourse, JsonUtil.jsonResponseTransformer());
-        get("/api/enrollments", this::getAllEnrollmentsAdmin, JsonUtil.jsonResponseTransformer()); // Новый маршрут
+        get("/api/enrollments", this::getAllEnrollmentsAdmin); // Ответ сериализуется внутри (страница или потоковый массив)
     }
 
     private Object enrollStudent(Request request, Response response) {
@@ -96,6 +104,53 @@ public class EnrollmentController {
         return null;
     }
 
+    private Object bulkEnroll(Request request, Response response) {
+        return handleBulk(request, response, "enroll", true);
+    }
+
+    private Object bulkUnenroll(Request request, Response response) {
+        return handleBulk(request, response, "unenroll", false);
+    }
+
+    // Тело запроса: JSON-массив [{"studentId": 1, "courseId": 2}, ...]
+    private Object handleBulk(Request request, Response response, String action, boolean enroll) {
+        response.type("application/json");
+        if (!isAdmin(request)) {
+            auditLogger.warn("Forbidden attempt by User ID {} (Type: {}, Role: {}) to bulk {}.",
+                    request.attribute("userId"), request.attribute("userType"), request.attribute("userRole"), action);
+            halt(HttpStatus.FORBIDDEN_403, JsonUtil.toJson(Collections.singletonMap("error", "Forbidden: Access denied.")));
+        }
+
+        Integer adminUserId = request.attribute("userId");
+        StudentCourse[] pairs;
+        try {
+            pairs = JsonUtil.fromJson(request.body(), StudentCourse[].class);
+        } catch (RuntimeException e) {
+            auditLogger.warn("Bulk {} failed (bad JSON request) by User ID {}: {}", action, adminUserId, e.getMessage());
+            halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "Bad request: expected a JSON array of {studentId, courseId}.")));
+            return null;
+        }
+        if (pairs == null || pairs.length == 0 || pairs.length > MAX_BULK_SIZE) {
+            halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "Request must contain between 1 and " + MAX_BULK_SIZE + " pairs.")));
+        }
+
+        auditLogger.info("Admin User ID {} attempting bulk {} of {} pairs.", adminUserId, action, pairs.length);
+        try {
+            List<BatchItemResult<StudentCourse>> results = enroll
+                    ? enrollmentService.enrollStudents(Arrays.asList(pairs))
+                    : enrollmentService.unenrollStudents(Arrays.asList(pairs));
+            long succeeded = results.stream().filter(r -> "CREATED".equals(r.getStatus()) || "DELETED".equals(r.getStatus())).count();
+            auditLogger.info("Bulk {} by Admin User ID {}: {} of {} pairs applied.", action, adminUserId, succeeded, results.size());
+            response.status(HttpStatus.OK_200);
+            return results;
+        } catch (RuntimeException e) {
+            logger.error("Error during bulk {} by User ID {}: {}", action, adminUserId, e.getMessage(), e);
+            auditLogger.error("Bulk {} failed (Server Error) by User ID {}: {}", action, adminUserId, e.getMessage());
+            halt(HttpStatus.INTERNAL_SERVER_ERROR_500, JsonUtil.toJson(Collections.singletonMap("error", "Internal server error during bulk " + action + ".")));
+        }
+        return null;
+    }
+
     private void handleEnrollmentException(Exception e, Integer userId, Response response, String logSummary, int statusCode) {
         logger.warn("{} by User ID {}: {}", logSummary, userId, e.getMessage(), e);
         auditLogger.warn("{} by User ID {}: {}", logSummary, userId, e.getMessage());
@@ -246,7 +301,7 @@ public class EnrollmentController {
         return enrollmentService.getEnrollmentsForCourse(courseId);
     }
 
-    private Object getAllEnrollmentsAdmin(Request request, Response response) {
+    private Object getAllEnrollmentsAdmin(Request request, Response response) throws IOException {
         response.type("application/json");
         if (!isAdmin(request)) {
             auditLogger.warn("Forbidden attempt by User ID {} (Type: {}, Role: {}) to get all enrollments.",
@@ -255,10 +310,48 @@ public class EnrollmentController {
         }
 
         Integer adminUserId = request.attribute("userId");
-        auditLogger.info("Admin User ID {} requesting all enrollments.", adminUserId);
+        String afterParam = request.queryParams("after");
+        String limitParam = request.queryParams("limit");
+        if (afterParam != null || limitParam != null) {
+            // Постраничный режим: ?after=<student_course_id>&limit=
+            int afterId = 0;
+            if (afterParam != null && !afterParam.isEmpty()) {
+                try {
+                    afterId = Integer.parseInt(afterParam);
+                } catch (NumberFormatException e) {
+                    halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "Invalid cursor format: after must be an enrollment ID.")));
+                }
+            }
+            int limit = parsePageLimit(limitParam);
+            auditLogger.info("Admin User ID {} requesting enrollments page after ID {} (limit {}).", adminUserId, afterId, limit);
+            response.status(HttpStatus.OK_200);
+            return JsonUtil.toJson(enrollmentService.getEnrollmentsPage(afterId, limit));
+        }
 
-        List<StudentCourse> enrollments = enrollmentService.getAllEnrollments();
+        // Полный список: строки идут из серверного курсора прямо в ответ
+        auditLogger.info("Admin User ID {} requesting all enrollments (streamed).", adminUserId);
+        long estimate = enrollmentService.getApproximateEnrollmentCount();
+        if (estimate >= 0) {
+            response.header("X-Total-Count-Estimate", String.valueOf(estimate));
+        }
         response.status(HttpStatus.OK_200);
-        return enrollments;
+        JsonUtil.<StudentCourse>writeJsonArray(response.raw().getOutputStream(), enrollmentService::streamAllEnrollments);
+        return "";
+    }
+
+    private int parsePageLimit(String limitParam) {
+        if (limitParam == null || limitParam.isEmpty()) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+        try {
+            int limit = Integer.parseInt(limitParam);
+            if (limit > 0 && limit <= MAX_PAGE_LIMIT) {
+                return limit;
+            }
+        } catch (NumberFormatException ignored) {
+            // Ниже отвечаем 400
+        }
+        halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "limit must be a number between 1 and " + MAX_PAGE_LIMIT + ".")));
+        return DEFAULT_PAGE_LIMIT;
     }
-}
\ No newline at end of file
+}
@@ -1,6 +1,9 @@
 package org.example.education.controller;
 
+import org.example.education.model.BatchItemResult;
 import org.example.education.model.Grade;
+import org.example.education.model.GradeSummary;
+import org.example.education.model.GroupGradeSummary;
 import org.example.education.model.StudentCourse;
 import org.example.education.model.UserType; // Импорт
 import org.example.education.service.EnrollmentService;
@@ -12,6 +15,7 @@ import org.slf4j.LoggerFactory;
 import spark.Request;
 import spark.Response;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -21,6 +25,7 @@ import static spark.Spark.*;
 public class GradeController {
     private static final Logger logger = LoggerFactory.getLogger(GradeController.class);
     private static final Logger auditLogger = LoggerFactory.getLogger("AUDIT");
+    private static final int MAX_BATCH_SIZE = 5000;
     private final GradeService gradeService;
     private final EnrollmentService enrollmentService;
 
@@ -40,6 +45,7 @@ public class GradeController {
     private void setupRoutes() {
         // Только админ (или преподаватель) может добавлять, обновлять, удалять оценки
         post("/api/grades", this::addGrade, JsonUtil.jsonResponseTransformer());
+        post("/api/grades/batch", this::addGradesBatch, JsonUtil.jsonResponseTransformer());
         put("/api/grades/:gradeId", this::updateGrade, JsonUtil.jsonResponseTransformer());
         delete("/api/grades/:gradeId", this::deleteGrade, JsonUtil.jsonResponseTransformer());
 
@@ -47,6 +53,10 @@ public class GradeController {
         get("/api/grades/:gradeId", this::getGradeById, JsonUtil.jsonResponseTransformer());
         get("/api/enrollments/:enrollmentId/grades", this::getGradesForEnrollment, JsonUtil.jsonResponseTransformer());
         get("/api/students/:studentId/grades", this::getGradesForStudent, JsonUtil.jsonResponseTransformer());
+
+        // Сводка успеваемости (GPA) из материализованных агрегатов
+        get("/api/students/:studentId/grade-summary", this::getGradeSummaryForStudent, JsonUtil.jsonResponseTransformer());
+        get("/api/groups/:groupName/grade-summary", this::getGroupGradeSummary, JsonUtil.jsonResponseTransformer());
     }
 
     private Object addGrade(Request request, Response response) {
@@ -83,6 +93,42 @@ public class GradeController {
         return null;
     }
 
+    private Object addGradesBatch(Request request, Response response) {
+        response.type("application/json");
+        if (!isAdmin(request) /* && !isTeacher(request) */) {
+            auditLogger.warn("Forbidden attempt by User ID {} (Type: {}, Role: {}) to add grades batch.",
+                    request.attribute("userId"), request.attribute("userType"), request.attribute("userRole"));
+            halt(HttpStatus.FORBIDDEN_403, JsonUtil.toJson(Collections.singletonMap("error", "Forbidden: Access denied.")));
+        }
+
+        Integer requestingUserId = request.attribute("userId");
+        Grade[] grades;
+        try {
+            grades = JsonUtil.fromJson(request.body(), Grade[].class);
+        } catch (RuntimeException e) {
+            auditLogger.warn("Grades batch failed (bad JSON request) by User ID {}: {}", requestingUserId, e.getMessage());
+            halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "Bad request: expected a JSON array of grades.")));
+            return null;
+        }
+        if (grades == null || grades.length == 0 || grades.length > MAX_BATCH_SIZE) {
+            halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "Batch must contain between 1 and " + MAX_BATCH_SIZE + " grades.")));
+        }
+
+        auditLogger.info("Admin/Teacher User ID {} attempting to add grades batch of {}.", requestingUserId, grades.length);
+        try {
+            List<BatchItemResult<Grade>> results = gradeService.addGrades(Arrays.asList(grades));
+            long created = results.stream().filter(r -> "CREATED".equals(r.getStatus())).count();
+            auditLogger.info("Grades batch by User ID {}: {} created, {} failed.", requestingUserId, created, results.size() - created);
+            response.status(HttpStatus.OK_200);
+            return results;
+        } catch (RuntimeException e) {
+            logger.error("Error adding grades batch by User ID {}: {}", requestingUserId, e.getMessage(), e);
+            auditLogger.error("Grades batch failed (Server Error) by User ID {}: {}", requestingUserId, e.getMessage());
+            halt(HttpStatus.INTERNAL_SERVER_ERROR_500, JsonUtil.toJson(Collections.singletonMap("error", "Could not add grades: " + e.getMessage())));
+        }
+        return null;
+    }
+
     private Object getGradeById(Request request, Response response) {
         response.type("application/json");
         Integer requestingUserId = request.attribute("userId");
@@ -182,6 +228,52 @@ public class GradeController {
         return gradeService.getGradesForStudent(studentIdFromPath);
     }
 
+    private Object getGradeSummaryForStudent(Request request, Response response) {
+        response.type("application/json");
+        Integer requestingUserId = request.attribute("userId");
+        UserType requestingUserType = request.attribute("userType");
+        int studentIdFromPath;
+        try {
+            studentIdFromPath = Integer.parseInt(request.params(":studentId"));
+        } catch (NumberFormatException e) {
+            halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "Invalid student ID format.")));
+            return null;
+        }
+        auditLogger.info("User ID {} (Type: {}) requesting grade summary for student ID: {}", requestingUserId, requestingUserType, studentIdFromPath);
+
+        boolean canView = isAdmin(request)
+                || (requestingUserType == UserType.STUDENT && studentIdFromPath == requestingUserId);
+        if (!canView) {
+            auditLogger.warn("Forbidden attempt by User ID {} to access grade summary for student ID {}.", requestingUserId, studentIdFromPath);
+            halt(HttpStatus.FORBIDDEN_403, JsonUtil.toJson(Collections.singletonMap("error", "Forbidden: You can only view your own grades.")));
+        }
+
+        Optional<GradeSummary> summary = gradeService.getGradeSummaryForStudent(studentIdFromPath);
+        if (summary.isEmpty()) {
+            response.status(HttpStatus.NOT_FOUND_404);
+            return Collections.singletonMap("error", "Student not found");
+        }
+        return summary.get();
+    }
+
+    private Object getGroupGradeSummary(Request request, Response response) {
+        response.type("application/json");
+        if (!isAdmin(request)) {
+            auditLogger.warn("Forbidden attempt by User ID {} (Type: {}, Role: {}) to view group grade summary.",
+                    request.attribute("userId"), request.attribute("userType"), request.attribute("userRole"));
+            halt(HttpStatus.FORBIDDEN_403, JsonUtil.toJson(Collections.singletonMap("error", "Forbidden: Access denied.")));
+        }
+        String groupName = request.params(":groupName");
+        auditLogger.info("Admin User ID {} requesting grade summary for group '{}'.", request.attribute("userId"), groupName);
+
+        Optional<GroupGradeSummary> summary = gradeService.getGroupGradeSummary(groupName);
+        if (summary.isEmpty()) {
+            response.status(HttpStatus.NOT_FOUND_404);
+            return Collections.singletonMap("error", "Group not found");
+        }
+        return summary.get();
+    }
+
     private Object updateGrade(Request request, Response response) {
         response.type("application/json");
         if (!isAdmin(request) /* && !isTeacher(request) */) {
@@ -0,0 +1,27 @@
+package org.example.education.controller;
+
+import org.example.education.util.Metrics;
+import spark.Request;
+import spark.Response;
+
+import static spark.Spark.get;
+
+/**
+ * Отдает метрики в текстовом формате Prometheus. Маршрут вне /api/*, поэтому не требует JWT:
+ * сборщик метрик обращается к нему без токена, а доступ ограничивается на уровне сети.
+ */
+public class MetricsController {
+
+    public MetricsController() {
+        setupRoutes();
+    }
+
+    private void setupRoutes() {
+        get("/metrics", this::scrape);
+    }
+
+    private Object scrape(Request request, Response response) {
+        response.type(Metrics.contentType());
+        return Metrics.scrape();
+    }
+}
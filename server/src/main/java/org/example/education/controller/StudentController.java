@@ -1,9 +1,13 @@
 package org.example.education.controller;
 
 import org.example.education.model.Student;
+import org.example.education.model.Transcript;
 import org.example.education.model.UserType;
+import org.example.education.model.StudentImportResult;
+import org.example.education.service.StudentImportService;
 import org.example.education.service.StudentService;
 import org.example.education.util.JsonUtil;
+import org.example.education.util.PasswordHashingPool;
 // import com.fasterxml.jackson.core.JsonProcessingException; // Ловим RuntimeException
 import org.eclipse.jetty.http.HttpStatus;
 import org.slf4j.Logger;
@@ -11,6 +15,10 @@ import org.slf4j.LoggerFactory;
 import spark.Request;
 import spark.Response;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Optional;
@@ -20,10 +28,15 @@ import static spark.Spark.*;
 public class StudentController {
     private static final Logger logger = LoggerFactory.getLogger(StudentController.class);
     private static final Logger auditLogger = LoggerFactory.getLogger("AUDIT");
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int DEFAULT_SEARCH_LIMIT = 20;
+    private static final int MAX_PAGE_LIMIT = 1000;
     private final StudentService studentService;
+    private final StudentImportService studentImportService;
 
-    public StudentController(StudentService studentService) {
+    public StudentController(StudentService studentService, StudentImportService studentImportService) {
         this.studentService = studentService;
+        this.studentImportService = studentImportService;
         setupRoutes();
     }
 
@@ -35,8 +48,11 @@ public class StudentController {
 
     private void setupRoutes() {
         post("/api/students", this::createStudent, JsonUtil.jsonResponseTransformer());
-        get("/api/students", this::getAllStudents, JsonUtil.jsonResponseTransformer());
+        post("/api/students/import", this::importStudents, JsonUtil.jsonResponseTransformer());
+        get("/api/students", this::getAllStudents); // Ответ сериализуется внутри (страница или потоковый массив)
+        get("/api/students/search", this::searchStudents, JsonUtil.jsonResponseTransformer()); // До /:id, иначе "search" примется за ID
         get("/api/students/:id", this::getStudentById, JsonUtil.jsonResponseTransformer());
+        get("/api/students/:id/transcript", this::getTranscript, JsonUtil.jsonResponseTransformer());
         put("/api/students/:id", this::updateStudent, JsonUtil.jsonResponseTransformer());
         delete("/api/students/:id", this::deleteStudent, JsonUtil.jsonResponseTransformer());
     }
@@ -82,6 +98,9 @@ public class StudentController {
             auditLogger.info("Student registered: ID {}, Email {}. Requested by IP: {}", createdStudent.getStudentId(), createdStudent.getEmail(), request.ip());
             return createdStudent;
         } catch (RuntimeException e) {
+            if (e instanceof PasswordHashingPool.OverloadedException) {
+                throw e; // 503 с Retry-After отвечает общий обработчик в App
+            }
             if (e.getCause() instanceof com.fasterxml.jackson.core.JsonProcessingException) {
                 logger.warn("Failed to parse create student request body: {}", e.getMessage());
                 auditLogger.warn("Student creation failed (bad JSON request). IP: {}. Error: {}", request.ip(), e.getMessage());
@@ -104,15 +123,130 @@ public class StudentController {
         return null;
     }
 
-    private Object getAllStudents(Request request, Response response) {
+    private Object importStudents(Request request, Response response) {
+        response.type("application/json");
+        if (!isAdmin(request)) {
+            auditLogger.warn("Forbidden attempt by User ID {} (Type: {}, Role: {}) to import students.",
+                    request.attribute("userId"), request.attribute("userType"), request.attribute("userRole"));
+            halt(HttpStatus.FORBIDDEN_403, JsonUtil.toJson(Collections.singletonMap("error", "Forbidden: Access denied.")));
+        }
+
+        // Формат берется из ?format= или Content-Type: text/csv | application/x-ndjson
+        String format = request.queryParams("format");
+        if (format == null) {
+            format = request.contentType() != null ? request.contentType().toLowerCase() : "";
+        }
+        StudentImportService.ImportFormat importFormat;
+        if (format.contains("csv")) {
+            importFormat = StudentImportService.ImportFormat.CSV;
+        } else if (format.contains("ndjson") || format.contains("jsonl")) {
+            importFormat = StudentImportService.ImportFormat.NDJSON;
+        } else {
+            halt(HttpStatus.UNSUPPORTED_MEDIA_TYPE_415, JsonUtil.toJson(Collections.singletonMap("error", "Use text/csv or application/x-ndjson for student import.")));
+            return null;
+        }
+
+        Integer adminUserId = request.attribute("userId");
+        auditLogger.info("Admin User ID {} started bulk student import ({}).", adminUserId, importFormat);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(request.raw().getInputStream(), StandardCharsets.UTF_8))) {
+            StudentImportResult result = studentImportService.importStudents(reader, importFormat);
+            auditLogger.info("Bulk student import by Admin User ID {} finished: {} rows, {} imported, {} failed.",
+                    adminUserId, result.getTotalRows(), result.getImportedRows(), result.getFailedRows());
+            response.status(HttpStatus.OK_200);
+            return result;
+        } catch (IllegalArgumentException e) {
+            auditLogger.warn("Bulk student import failed (Bad Request) by Admin User ID {}: {}", adminUserId, e.getMessage());
+            halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", e.getMessage())));
+        } catch (IOException e) {
+            logger.error("Error reading student import body from Admin User ID {}", adminUserId, e);
+            auditLogger.error("Bulk student import failed (Server Error - IO) by Admin User ID {}: {}", adminUserId, e.getMessage());
+            halt(HttpStatus.INTERNAL_SERVER_ERROR_500, JsonUtil.toJson(Collections.singletonMap("error", "Failed to read import data.")));
+        }
+        return null;
+    }
+
+    private Object getAllStudents(Request request, Response response) throws IOException {
         response.type("application/json");
         if (!isAdmin(request)) {
             auditLogger.warn("Forbidden attempt by User ID {} (Type: {}, Role: {}) to get all students.",
                     request.attribute("userId"), request.attribute("userType"), request.attribute("userRole"));
             halt(HttpStatus.FORBIDDEN_403, JsonUtil.toJson(Collections.singletonMap("error", "Forbidden: Access denied.")));
         }
-        auditLogger.info("Admin User ID {} requesting all students.", (Object) request.attribute("userId"));
-        return studentService.getAllStudents();
+
+        String after = request.queryParams("after");
+        String limitParam = request.queryParams("limit");
+        if (after != null || limitParam != null) {
+            // Постраничный режим: ?after=<nextCursor предыдущей страницы>&limit=
+            int limit = parsePageLimit(limitParam);
+            auditLogger.info("Admin User ID {} requesting students page after '{}' (limit {}).", request.attribute("userId"), after, limit);
+            try {
+                response.status(HttpStatus.OK_200);
+                return JsonUtil.toJson(studentService.getStudentsPage(after, limit));
+            } catch (IllegalArgumentException e) {
+                halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", e.getMessage())));
+                return null;
+            }
+        }
+
+        // Полный список: строки идут из серверного курсора прямо в ответ, без промежуточного списка и строки
+        auditLogger.info("Admin User ID {} requesting all students (streamed).", (Object) request.attribute("userId"));
+        long estimate = studentService.getApproximateStudentCount();
+        if (estimate >= 0) {
+            response.header("X-Total-Count-Estimate", String.valueOf(estimate));
+        }
+        response.status(HttpStatus.OK_200);
+        JsonUtil.<Student>writeJsonArray(response.raw().getOutputStream(), studentService::streamAllStudents);
+        return "";
+    }
+
+    // GET /api/students/search?q=&group=&courseId=&limit= - результаты в порядке релевантности
+    private Object searchStudents(Request request, Response response) {
+        response.type("application/json");
+        if (!isAdmin(request)) {
+            auditLogger.warn("Forbidden attempt by User ID {} (Type: {}, Role: {}) to search students.",
+                    request.attribute("userId"), request.attribute("userType"), request.attribute("userRole"));
+            halt(HttpStatus.FORBIDDEN_403, JsonUtil.toJson(Collections.singletonMap("error", "Forbidden: Access denied.")));
+        }
+
+        String query = request.queryParams("q");
+        String group = request.queryParams("group");
+        Integer courseId = null;
+        String courseIdParam = request.queryParams("courseId");
+        if (courseIdParam != null && !courseIdParam.isEmpty()) {
+            try {
+                courseId = Integer.parseInt(courseIdParam);
+            } catch (NumberFormatException e) {
+                halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "courseId must be a number.")));
+            }
+        }
+        String limitParam = request.queryParams("limit");
+        int limit = (limitParam == null || limitParam.isEmpty()) ? DEFAULT_SEARCH_LIMIT : parsePageLimit(limitParam);
+        auditLogger.info("Admin User ID {} searching students: q='{}', group={}, courseId={}, limit={}.",
+                request.attribute("userId"), query, group, courseId, limit);
+
+        try {
+            response.status(HttpStatus.OK_200);
+            return studentService.searchStudents(query, group, courseId, limit);
+        } catch (IllegalArgumentException e) {
+            halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", e.getMessage())));
+            return null;
+        }
+    }
+
+    private int parsePageLimit(String limitParam) {
+        if (limitParam == null || limitParam.isEmpty()) {
+            return DEFAULT_PAGE_LIMIT;
+        }
+        try {
+            int limit = Integer.parseInt(limitParam);
+            if (limit > 0 && limit <= MAX_PAGE_LIMIT) {
+                return limit;
+            }
+        } catch (NumberFormatException ignored) {
+            // Ниже отвечаем 400
+        }
+        halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "limit must be a number between 1 and " + MAX_PAGE_LIMIT + ".")));
+        return DEFAULT_PAGE_LIMIT;
     }
 
     private Object getStudentById(Request request, Response response) {
@@ -150,6 +284,40 @@ public class StudentController {
         }
     }
 
+    // Выписка: студент, курсы, записи и оценки одним документом вместо десятков отдельных запросов
+    private Object getTranscript(Request request, Response response) {
+        response.type("application/json");
+        int studentIdFromPath;
+        try {
+            studentIdFromPath = Integer.parseInt(request.params(":id"));
+        } catch (NumberFormatException e) {
+            auditLogger.warn("Invalid student ID format '{}' in path.", request.params(":id"));
+            halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "Invalid student ID format.")));
+            return null;
+        }
+
+        Integer requestingUserId = request.attribute("userId");
+        UserType requestingUserType = request.attribute("userType");
+        auditLogger.info("User ID {} (Type: {}) requesting transcript of student ID: {}",
+                requestingUserId, requestingUserType, studentIdFromPath);
+
+        if (!isAdmin(request) && (requestingUserType != UserType.STUDENT || studentIdFromPath != requestingUserId)) {
+            auditLogger.warn("Forbidden attempt by User ID {} (Type: {}) to get transcript of student ID {}.",
+                    requestingUserId, requestingUserType, studentIdFromPath);
+            halt(HttpStatus.FORBIDDEN_403, JsonUtil.toJson(Collections.singletonMap("error", "Forbidden: Access denied.")));
+        }
+
+        Optional<Transcript> transcriptOpt = studentService.getTranscript(studentIdFromPath);
+        if (transcriptOpt.isPresent()) {
+            response.status(HttpStatus.OK_200);
+            return transcriptOpt.get();
+        } else {
+            auditLogger.warn("Student ID {} not found for transcript request by User ID {}.", studentIdFromPath, requestingUserId);
+            response.status(HttpStatus.NOT_FOUND_404);
+            return Collections.singletonMap("error", "Student not found");
+        }
+    }
+
     private Object updateStudent(Request request, Response response) {
         response.type("application/json");
         int studentIdToUpdate;
@@ -232,6 +400,9 @@ public class StudentController {
                 }
             }
         } catch (RuntimeException e) {
+            if (e instanceof PasswordHashingPool.OverloadedException) {
+                throw e; // 503 с Retry-After отвечает общий обработчик в App
+            }
             if (e.getCause() instanceof com.fasterxml.jackson.core.JsonProcessingException) {
                 halt(HttpStatus.BAD_REQUEST_400, JsonUtil.toJson(Collections.singletonMap("error", "Bad request: Invalid JSON format. " + e.getMessage())));
             } else if (e instanceof IllegalArgumentException) {
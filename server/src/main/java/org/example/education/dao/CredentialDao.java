@@ -0,0 +1,106 @@
+package org.example.education.dao;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.example.education.config.ServerConfig;
+import org.example.education.model.UserType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Учетные данные для входа из представления user_credentials (сотрудники и студенты):
+ * email -> тип, id, роль и хеш пароля за один индексный запрос.
+ * Email, которых нет ни в одной таблице, запоминаются в отрицательном кэше, чтобы перебор
+ * несуществующих адресов (credential stuffing) не доходил до БД. Кэш общий для всех экземпляров DAO:
+ * StudentDao и EmployeeDao сбрасывают из него email при создании пользователя.
+ */
+public class CredentialDao {
+    private static final Logger logger = LoggerFactory.getLogger(CredentialDao.class);
+
+    private static final Cache<String, Boolean> unknownEmails = Caffeine.newBuilder()
+            .maximumSize(ServerConfig.getUnknownEmailCacheMaxSize())
+            .expireAfterWrite(Duration.ofSeconds(ServerConfig.getUnknownEmailCacheTtlSeconds()))
+            .recordStats()
+            .build();
+
+    public static class UserCredential {
+        public final UserType userType;
+        public final int userId;
+        public final String email;
+        public final String role;
+        public final String passwordHash;
+
+        public UserCredential(UserType userType, int userId, String email, String role, String passwordHash) {
+            this.userType = userType;
+            this.userId = userId;
+            this.email = email;
+            this.role = role;
+            this.passwordHash = passwordHash;
+        }
+    }
+
+    private static final RowMapper<UserCredential> USER_CREDENTIAL = rs -> new UserCredential(
+            UserType.valueOf(rs.getString(1)), rs.getInt(2), rs.getString(3), rs.getString(4), rs.getString(5));
+
+    /**
+     * Ищет пользователя по email. Если email есть и у сотрудника, и у студента, возвращается сотрудник
+     * (как и прежде при поиске сначала среди сотрудников).
+     * Ошибка БД не кэшируется и возвращает пустой результат, как в остальных findByEmailForAuth.
+     */
+    public Optional<UserCredential> findByEmailForAuth(String email) {
+        if (unknownEmails.getIfPresent(email) != null) {
+            return Optional.empty();
+        }
+        String sql = "SELECT user_type, user_id, email, role, password_hash FROM user_credentials " +
+                "WHERE email = ? ORDER BY user_type <> 'EMPLOYEE' LIMIT 1";
+        try {
+            Optional<UserCredential> credential = QueryRunner.PRIMARY_READ.queryOne(sql, USER_CREDENTIAL, email);
+            if (credential.isEmpty()) {
+                unknownEmails.put(email, Boolean.TRUE);
+            }
+            return credential;
+        } catch (SQLException e) {
+            logger.error("Error finding credentials by email for auth: {}", email, e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Заменяет хеш пароля (перехеширование с новой стоимостью BCrypt). Условие на старый хеш не дает
+     * затереть пароль, который пользователь успел сменить, пока считался новый хеш.
+     * @return true, если хеш заменен.
+     */
+    public boolean updatePasswordHash(UserType userType, int userId, String oldHash, String newHash) {
+        String sql = userType == UserType.EMPLOYEE
+                ? "UPDATE employees SET password_hash = ? WHERE employee_id = ? AND password_hash = ?"
+                : "UPDATE students SET password_hash = ? WHERE student_id = ? AND password_hash = ?";
+        try {
+            return QueryRunner.PRIMARY.update(sql, newHash, userId, oldHash) > 0;
+        } catch (SQLException e) {
+            logger.error("Error updating password hash for {} {}: {}", userType, userId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // Вызывается после создания пользователя или смены email: иначе новый адрес до истечения записи считался бы неизвестным
+    public static void forgetUnknownEmail(String email) {
+        if (email != null) {
+            unknownEmails.invalidate(email);
+        }
+    }
+
+    public static void forgetUnknownEmails(Collection<String> emails) {
+        unknownEmails.invalidateAll(emails);
+    }
+
+    public void bindMetrics(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, unknownEmails, "auth.unknown.emails");
+    }
+}
@@ -3,33 +3,65 @@ package org.example.education.dao;
 import org.example.education.config.ServerConfig;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.example.education.util.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.sql.DataSource;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 public class DatabaseManager {
     private static final Logger logger = LoggerFactory.getLogger(DatabaseManager.class);
-    private static HikariDataSource dataSource;
+    private static final int PIN_MAP_CLEANUP_THRESHOLD = 10_000;
+    private static InstrumentedDataSource dataSource;
+    private static InstrumentedDataSource replicaDataSource; // null, если реплика не настроена
+    private static EmbeddedDatabase embeddedDatabase; // null, если используется внешняя БД
+    private static final long replicaPinNanos = ServerConfig.getDbReplicaPinMillis() * 1_000_000L;
+
+    // Пользователь текущего запроса (например, "STUDENT:12") и время его последней записи для read-your-writes
+    private static final ThreadLocal<String> requestUser = new ThreadLocal<>();
+    // Признак того, что в текущем запросе соединение не было получено за db.pool.connection.timeout.ms
+    private static final ThreadLocal<AtomicBoolean> requestPoolTimeout = new ThreadLocal<>();
+    private static final Map<String, Long> lastWriteNanosByUser = new ConcurrentHashMap<>();
 
     static {
         try {
             Class.forName("org.postgresql.Driver");
 
             HikariConfig config = new HikariConfig();
-            config.setJdbcUrl(ServerConfig.getDbUrl());
-            config.setUsername(ServerConfig.getDbUsername());
-            config.setPassword(ServerConfig.getDbPassword());
+            config.setPoolName("primary-pool");
+            if (ServerConfig.isEmbeddedDb()) {
+                requireEmbeddedPostgres();
+                embeddedDatabase = EmbeddedDatabase.start();
+                config.setJdbcUrl(embeddedDatabase.getJdbcUrl());
+                config.setUsername(EmbeddedDatabase.USERNAME);
+            } else {
+                config.setJdbcUrl(ServerConfig.getDbUrl());
+                config.setUsername(ServerConfig.getDbUsername());
+                config.setPassword(ServerConfig.getDbPassword());
+            }
             config.setMaximumPoolSize(ServerConfig.getDbPoolSize());
+            // Пул ограничивает число одновременных запросов к БД; ожидание соединения ограничено, дальше - 503
+            config.setConnectionTimeout(ServerConfig.getDbPoolConnectionTimeoutMillis());
             config.addDataSourceProperty("cachePrepStmts", "true");
             config.addDataSourceProperty("prepStmtCacheSize", "250");
             config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            // Активные/свободные/ожидающие соединения и время получения соединения (hikaricp_connections_*)
+            config.setMetricRegistry(Metrics.registry());
             // Другие настройки HikariCP по необходимости
 
-            dataSource = new HikariDataSource(config);
+            dataSource = new InstrumentedDataSource(new HikariDataSource(config));
             logger.info("Database connection pool initialized successfully.");
 
+            initReplicaDataSource();
+
         } catch (ClassNotFoundException e) {
             logger.error("PostgreSQL JDBC Driver not found!", e);
             throw new RuntimeException("PostgreSQL JDBC Driver not found!", e);
@@ -39,8 +71,163 @@ public class DatabaseManager {
         }
     }
 
+    // embedded-postgres не входит в обычный jar (scope provided); без этой проверки запуск падал бы с NoClassDefFoundError
+    private static void requireEmbeddedPostgres() {
+        try {
+            Class.forName("io.zonky.test.db.postgres.embedded.EmbeddedPostgres");
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("db.mode=embedded requires the embedded PostgreSQL library, which is not in this build. " +
+                    "Rebuild with 'mvn clean package -Pembedded-db' or use an external database (db.mode=external).", e);
+        }
+    }
+
+    private static void initReplicaDataSource() {
+        String replicaUrl = ServerConfig.getDbReplicaUrl();
+        if (replicaUrl == null || embeddedDatabase != null) {
+            return;
+        }
+        try {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("replica-pool");
+            config.setJdbcUrl(replicaUrl);
+            config.setUsername(ServerConfig.getDbReplicaUsername());
+            config.setPassword(ServerConfig.getDbReplicaPassword());
+            config.setMaximumPoolSize(ServerConfig.getDbReplicaPoolSize());
+            config.setConnectionTimeout(ServerConfig.getDbPoolConnectionTimeoutMillis());
+            config.setReadOnly(true);
+            config.addDataSourceProperty("cachePrepStmts", "true");
+            config.addDataSourceProperty("prepStmtCacheSize", "250");
+            config.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            config.setMetricRegistry(Metrics.registry());
+            replicaDataSource = new InstrumentedDataSource(new HikariDataSource(config));
+            logger.info("Read replica connection pool initialized: {}", replicaUrl);
+        } catch (Exception e) {
+            // Без реплики сервер продолжает работать, все чтения идут на основную БД
+            logger.error("Failed to initialize read replica pool, reads will use the primary database", e);
+            replicaDataSource = null;
+        }
+    }
+
+    /**
+     * Соединение с основной БД для записей и транзакций. Само получение соединения пользователя
+     * не закрепляет: запись отмечает markWrite (его вызывают QueryRunner и транзакционные методы DAO).
+     */
     public static Connection getConnection() throws SQLException {
-        return dataSource.getConnection();
+        return acquire(dataSource);
+    }
+
+    /**
+     * Соединение с основной БД для чтения, которому нельзя отставать от записей (например, заполнение
+     * общего кэша или проверка перед записью). Пользователя за основной БД не закрепляет.
+     */
+    public static Connection getPrimaryReadConnection() throws SQLException {
+        return acquire(dataSource);
+    }
+
+    /**
+     * Отмечает, что пользователь текущего запроса пишет в БД: на db.replica.pin.seconds его чтения
+     * закрепляются за основной БД (read-your-writes). Вызывается до выполнения записи, чтобы
+     * параллельный запрос того же пользователя не прочитал с реплики уже закоммиченное изменение.
+     */
+    static void markWrite() {
+        String user = requestUser.get();
+        if (user == null || replicaDataSource == null) {
+            return;
+        }
+        if (lastWriteNanosByUser.size() > PIN_MAP_CLEANUP_THRESHOLD) {
+            long now = System.nanoTime();
+            lastWriteNanosByUser.values().removeIf(writtenAt -> now - writtenAt > replicaPinNanos);
+        }
+        lastWriteNanosByUser.put(user, System.nanoTime());
+    }
+
+    /**
+     * Соединение для read-only запросов: с реплики, если она настроена и пользователь текущего
+     * запроса не писал в БД в последние db.replica.pin.seconds; иначе - с основной БД.
+     */
+    public static Connection getReadConnection() throws SQLException {
+        if (replicaDataSource == null || isPinnedToPrimary()) {
+            return acquire(dataSource);
+        }
+        try {
+            return replicaDataSource.getConnection();
+        } catch (SQLException e) {
+            logger.warn("Read replica unavailable, falling back to primary: {}", e.getMessage());
+            return acquire(dataSource);
+        }
+    }
+
+    // Исчерпание пула отмечается в запросе, чтобы ответить 503, даже если DAO проглотил исключение
+    private static Connection acquire(DataSource source) throws SQLException {
+        try {
+            return source.getConnection();
+        } catch (SQLTransientConnectionException e) {
+            AtomicBoolean flag = requestPoolTimeout.get();
+            if (flag != null) {
+                flag.set(true);
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isPinnedToPrimary() {
+        String user = requestUser.get();
+        if (user == null) {
+            return false;
+        }
+        Long writtenAt = lastWriteNanosByUser.get(user);
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - writtenAt > replicaPinNanos) {
+            lastWriteNanosByUser.remove(user, writtenAt);
+            return false;
+        }
+        return true;
+    }
+
+    // Начинает новый запрос в текущем потоке (вызывается глобальным before-фильтром)
+    public static void beginRequest() {
+        requestPoolTimeout.set(new AtomicBoolean());
+    }
+
+    // Привязывает пользователя к текущему потоку запроса (вызывается после аутентификации)
+    public static void bindRequestUser(String userKey) {
+        requestUser.set(userKey);
+    }
+
+    // true, если в текущем запросе не удалось дождаться соединения из пула
+    public static boolean isPoolTimeoutInRequest() {
+        AtomicBoolean flag = requestPoolTimeout.get();
+        return flag != null && flag.get();
+    }
+
+    // Отвязывает запрос от потока по окончании запроса
+    public static void endRequest() {
+        requestUser.remove();
+        requestPoolTimeout.remove();
+    }
+
+    /**
+     * Возвращает приблизительное число строк таблицы по статистике планировщика (pg_class.reltuples)
+     * вместо полного COUNT(*).
+     * @param tableName имя таблицы.
+     * @return оценка числа строк или -1, если статистика по таблице еще не собрана.
+     */
+    public static long estimateRowCount(String tableName) {
+        String sql = "SELECT reltuples::bigint FROM pg_class WHERE oid = to_regclass(?)";
+        try (Connection conn = getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, tableName);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) {
+                    return Math.max(rs.getLong(1), -1L); // До первого ANALYZE PostgreSQL 14+ хранит -1
+                }
+            }
+        } catch (SQLException e) {
+            logger.error("Error estimating row count for table {}: {}", tableName, e.getMessage(), e);
+        }
+        return -1L;
     }
 
     public static void closeDataSource() {
@@ -48,5 +235,13 @@ public class DatabaseManager {
             dataSource.close();
             logger.info("Database connection pool closed.");
         }
+        if (replicaDataSource != null && !replicaDataSource.isClosed()) {
+            replicaDataSource.close();
+            logger.info("Read replica connection pool closed.");
+        }
+        if (embeddedDatabase != null) {
+            embeddedDatabase.close();
+            embeddedDatabase = null;
+        }
     }
 }
\ No newline at end of file
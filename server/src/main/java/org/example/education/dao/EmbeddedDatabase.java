@@ -0,0 +1,111 @@
+package org.example.education.dao;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.example.education.config.ServerConfig;
+import org.example.education.util.PasswordUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+/**
+ * Встроенный PostgreSQL, запускаемый в процессе сервера (db.mode=embedded или --embedded-db).
+ * Нужен для локальной разработки и воспроизводимых бенчмарков без внешней БД: при старте
+ * применяются миграции схемы (MigrationRunner) и, если включено db.embedded.seed, загружаются тестовые данные.
+ * Используется настоящий PostgreSQL, а не H2, так как DAO опираются на COPY, unnest, ON CONFLICT и pg_class.
+ */
+public class EmbeddedDatabase implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(EmbeddedDatabase.class);
+    static final String USERNAME = "postgres";
+    static final String DATABASE = "postgres";
+
+    // Учетные данные тестового администратора для встроенной БД
+    private static final String SEED_ADMIN_EMAIL = "admin@example.com";
+    private static final String SEED_ADMIN_PASSWORD = "adminpass";
+    private static final String SEED_STUDENT_PASSWORD = "password";
+
+    private final EmbeddedPostgres postgres;
+
+    private EmbeddedDatabase(EmbeddedPostgres postgres) {
+        this.postgres = postgres;
+    }
+
+    public static EmbeddedDatabase start() throws IOException, SQLException {
+        EmbeddedPostgres.Builder builder = EmbeddedPostgres.builder();
+        int port = ServerConfig.getDbEmbeddedPort();
+        if (port > 0) {
+            builder.setPort(port); // Иначе выбирается любой свободный порт
+        }
+        EmbeddedDatabase database = new EmbeddedDatabase(builder.start());
+        logger.info("Embedded PostgreSQL started on port {}.", database.postgres.getPort());
+        try {
+            DataSource dataSource = database.postgres.getPostgresDatabase();
+            try (Connection conn = dataSource.getConnection()) {
+                MigrationRunner.migrate(conn); // Тестовые данные требуют готовых таблиц
+            }
+            if (ServerConfig.isDbEmbeddedSeed()) {
+                seed(dataSource, ServerConfig.getDbEmbeddedSeedStudents());
+            }
+        } catch (SQLException | RuntimeException e) {
+            database.close();
+            throw e;
+        }
+        return database;
+    }
+
+    public String getJdbcUrl() {
+        return postgres.getJdbcUrl(USERNAME, DATABASE);
+    }
+
+    private static void seed(DataSource dataSource, int studentCount) throws SQLException {
+        String adminSql = "INSERT INTO employees (first_name, last_name, email, password_hash, role) " +
+                "VALUES ('Admin', 'User', ?, ?, 'ADMIN') ON CONFLICT (email) DO NOTHING";
+        String coursesSql = "INSERT INTO courses (course_name, description) VALUES " +
+                "('Математический анализ', 'Основы математического анализа для студентов первого курса.'), " +
+                "('Физика', 'Механика и термодинамика.'), " +
+                "('Программирование', 'Введение в Java.') " +
+                "ON CONFLICT (course_name) DO NOTHING";
+        // Все синтетические студенты получают один хеш, чтобы не тратить время старта на BCrypt
+        String studentsSql = "INSERT INTO students (first_name, last_name, email, group_name, password_hash) " +
+                "SELECT 'Student' || n, 'Seed' || n, 'student' || n || '@example.com', 'G-' || (n % 50), ? " +
+                "FROM generate_series(1, ?) AS n ON CONFLICT (email) DO NOTHING";
+
+        try (Connection conn = dataSource.getConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement(adminSql)) {
+                pstmt.setString(1, SEED_ADMIN_EMAIL);
+                pstmt.setString(2, PasswordUtil.hashPassword(SEED_ADMIN_PASSWORD));
+                pstmt.executeUpdate();
+            }
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate(coursesSql);
+            }
+            if (studentCount > 0) {
+                try (PreparedStatement pstmt = conn.prepareStatement(studentsSql)) {
+                    pstmt.setString(1, PasswordUtil.hashPassword(SEED_STUDENT_PASSWORD));
+                    pstmt.setInt(2, studentCount);
+                    pstmt.executeUpdate();
+                }
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.execute("ANALYZE students"); // Чтобы оценки по pg_class.reltuples были сразу доступны
+                }
+            }
+        }
+        logger.info("Embedded database seeded: admin {} / {}, {} synthetic students (password '{}').",
+                SEED_ADMIN_EMAIL, SEED_ADMIN_PASSWORD, studentCount, SEED_STUDENT_PASSWORD);
+    }
+
+    @Override
+    public void close() {
+        try {
+            postgres.close();
+            logger.info("Embedded PostgreSQL stopped.");
+        } catch (IOException e) {
+            logger.error("Error stopping embedded PostgreSQL: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -5,7 +5,7 @@ import org.example.education.util.PasswordUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.sql.*;
+import java.sql.SQLException;
 import java.util.Optional;
 // Пока не будем реализовывать полный CRUD для сотрудников через API, только поиск для логина
 // и, возможно, создание через консоль или напрямую в БД для админов.
@@ -24,23 +24,14 @@ public class EmployeeDao {
         }
     }
 
+    // Сотрудник (колонки 1-5) и хеш пароля (колонка 6)
+    private static final RowMapper<EmployeeWithPasswordHash> EMPLOYEE_WITH_HASH =
+            rs -> new EmployeeWithPasswordHash(RowMappers.EMPLOYEE.map(rs), rs.getString(6));
+
     public Optional<EmployeeWithPasswordHash> findByEmailForAuth(String email) {
-        String sql = "SELECT employee_id, first_name, last_name, email, password_hash, role FROM employees WHERE email = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                Employee employee = new Employee(
-                        rs.getInt("employee_id"),
-                        rs.getString("first_name"),
-                        rs.getString("last_name"),
-                        rs.getString("email"),
-                        rs.getString("role")
-                );
-                String passwordHash = rs.getString("password_hash");
-                return Optional.of(new EmployeeWithPasswordHash(employee, passwordHash));
-            }
+        String sql = "SELECT " + RowMappers.EMPLOYEE_COLUMNS + ", password_hash FROM employees WHERE email = ?";
+        try {
+            return QueryRunner.PRIMARY_READ.queryOne(sql, EMPLOYEE_WITH_HASH, email);
         } catch (SQLException e) {
             logger.error("Error finding employee by email for auth: {}", email, e);
         }
@@ -55,27 +46,13 @@ public class EmployeeDao {
         String hashedPassword = PasswordUtil.hashPassword(rawPassword);
 
         String sql = "INSERT INTO employees (first_name, last_name, email, password_hash, role) VALUES (?, ?, ?, ?, ?) RETURNING employee_id";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, employee.getFirstName());
-            pstmt.setString(2, employee.getLastName());
-            pstmt.setString(3, employee.getEmail());
-            pstmt.setString(4, hashedPassword);
-            pstmt.setString(5, employee.getRole() != null ? employee.getRole() : "ADMIN"); // Роль по умолчанию
-
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Creating employee failed, no rows affected.");
-            }
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    employee.setEmployeeId(generatedKeys.getInt(1));
-                    logger.info("Employee saved successfully with ID: {}", employee.getEmployeeId());
-                    return employee;
-                } else {
-                    throw new SQLException("Creating employee failed, no ID obtained.");
-                }
-            }
+        try {
+            employee.setEmployeeId(QueryRunner.PRIMARY.insertReturningId(sql, "Creating employee failed",
+                    employee.getFirstName(), employee.getLastName(), employee.getEmail(), hashedPassword,
+                    employee.getRole() != null ? employee.getRole() : "ADMIN")); // Роль по умолчанию
+            CredentialDao.forgetUnknownEmail(employee.getEmail());
+            logger.info("Employee saved successfully with ID: {}", employee.getEmployeeId());
+            return employee;
         } catch (SQLException e) {
             logger.error("Error saving employee with email {}: {}", employee.getEmail(), e.getMessage(), e);
             throw new RuntimeException("Could not save employee: " + e.getMessage(), e);
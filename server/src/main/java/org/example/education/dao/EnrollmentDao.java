@@ -1,41 +1,44 @@
 package org.example.education.dao;
 
 import org.example.education.model.StudentCourse;
+import org.postgresql.util.PSQLException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.sql.*;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class EnrollmentDao {
     private static final Logger logger = LoggerFactory.getLogger(EnrollmentDao.class);
+    // Сколько строк драйвер забирает с серверного курсора за один round trip при потоковом чтении
+    private static final int STREAM_FETCH_SIZE = 500;
 
     public StudentCourse enrollStudent(int studentId, int courseId, LocalDate enrollmentDate) {
         String sql = "INSERT INTO student_courses (student_id, course_id, enrollment_date) VALUES (?, ?, ?) RETURNING student_course_id";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setInt(1, studentId);
-            pstmt.setInt(2, courseId);
-            pstmt.setDate(3, Date.valueOf(enrollmentDate));
-
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Enrolling student failed, no rows affected.");
-            }
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    int studentCourseId = generatedKeys.getInt(1);
-                    logger.info("Student {} enrolled in course {} successfully. Enrollment ID: {}", studentId, courseId, studentCourseId);
-                    return new StudentCourse(studentCourseId, studentId, courseId, enrollmentDate);
-                } else {
-                    throw new SQLException("Enrolling student failed, no ID obtained.");
+        try {
+            int studentCourseId = QueryRunner.PRIMARY.insertReturningId(sql, "Enrolling student failed",
+                    studentId, courseId, enrollmentDate);
+            logger.info("Student {} enrolled in course {} successfully. Enrollment ID: {}", studentId, courseId, studentCourseId);
+            return new StudentCourse(studentCourseId, studentId, courseId, enrollmentDate);
+        } catch (SQLException e) {
+            // Существование студента и курса проверяет сам INSERT: внешние ключи student_courses
+            if ("23503".equals(e.getSQLState())) { // Foreign key violation
+                String constraint = violatedConstraint(e);
+                if (constraint != null && constraint.endsWith("course_id_fkey")) {
+                    logger.warn("Enrollment attempt failed: Course with ID {} not found.", courseId);
+                    throw new IllegalArgumentException("Course not found.", e);
                 }
+                logger.warn("Enrollment attempt failed: Student with ID {} not found.", studentId);
+                throw new IllegalArgumentException("Student not found.", e);
             }
-        } catch (SQLException e) {
-            if (e.getSQLState().equals("23505")) { // Unique violation
+            if ("23505".equals(e.getSQLState())) { // Unique violation
                 logger.warn("Student {} is already enrolled in course {}.", studentId, courseId);
                 throw new RuntimeException("Student is already enrolled in this course.", e);
             }
@@ -44,14 +47,75 @@ public class EnrollmentDao {
         }
     }
 
+    /**
+     * Записывает много пар (студент, курс) одним оператором: INSERT ... SELECT ... ON CONFLICT DO NOTHING RETURNING
+     * внутри CTE, а внешний SELECT в том же операторе классифицирует каждую пару
+     * (создана, уже была, нет студента, нет курса).
+     * @return по одной строке на каждую различную входную пару.
+     */
+    public List<BulkEnrollmentRow> enrollStudents(List<Integer> studentIds, List<Integer> courseIds) {
+        String sql = "WITH input AS (" +
+                "  SELECT DISTINCT t.student_id, t.course_id FROM unnest(?::int[], ?::int[]) AS t(student_id, course_id)" +
+                "), inserted AS (" +
+                "  INSERT INTO student_courses (student_id, course_id, enrollment_date)" +
+                "  SELECT i.student_id, i.course_id, CURRENT_DATE FROM input i" +
+                "  WHERE EXISTS (SELECT 1 FROM students s WHERE s.student_id = i.student_id)" +
+                "    AND EXISTS (SELECT 1 FROM courses c WHERE c.course_id = i.course_id)" +
+                "  ON CONFLICT (student_id, course_id) DO NOTHING" +
+                "  RETURNING student_course_id, student_id, course_id, enrollment_date" +
+                ") " +
+                "SELECT i.student_id, i.course_id," +
+                "  ins.student_course_id AS created_id, ins.enrollment_date AS created_date," +
+                "  sc.student_course_id AS existing_id, sc.enrollment_date AS existing_date," +
+                "  EXISTS (SELECT 1 FROM students s WHERE s.student_id = i.student_id) AS student_exists," +
+                "  EXISTS (SELECT 1 FROM courses c WHERE c.course_id = i.course_id) AS course_exists " +
+                "FROM input i " +
+                "LEFT JOIN inserted ins ON ins.student_id = i.student_id AND ins.course_id = i.course_id " +
+                // Снимок оператора не видит строк из inserted, поэтому sc - только записи, существовавшие до вставки
+                "LEFT JOIN student_courses sc ON sc.student_id = i.student_id AND sc.course_id = i.course_id";
+        try {
+            return QueryRunner.PRIMARY.updateReturning(sql, BULK_ENROLLMENT_ROW, studentIds.size(),
+                    QueryRunner.toIntArray(studentIds), QueryRunner.toIntArray(courseIds));
+        } catch (SQLException e) {
+            logger.error("Error bulk enrolling {} pairs: {}", studentIds.size(), e.getMessage(), e);
+            throw new RuntimeException("Could not enroll students: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Удаляет записи для многих пар (студент, курс) одним DELETE ... USING unnest(...) RETURNING.
+     * @return удаленные записи; пары без записи в результат не попадают.
+     */
+    public List<StudentCourse> unenrollStudents(List<Integer> studentIds, List<Integer> courseIds) {
+        String sql = "DELETE FROM student_courses sc " +
+                "USING unnest(?::int[], ?::int[]) AS t(student_id, course_id) " +
+                "WHERE sc.student_id = t.student_id AND sc.course_id = t.course_id " +
+                "RETURNING " + RowMappers.qualified("sc", RowMappers.STUDENT_COURSE_COLUMNS);
+        try {
+            List<StudentCourse> deleted = QueryRunner.PRIMARY.updateReturning(sql, RowMappers.STUDENT_COURSE, studentIds.size(),
+                    QueryRunner.toIntArray(studentIds), QueryRunner.toIntArray(courseIds));
+            logger.info("Bulk unenroll: {} of {} pairs removed.", deleted.size(), studentIds.size());
+            return deleted;
+        } catch (SQLException e) {
+            logger.error("Error bulk unenrolling {} pairs: {}", studentIds.size(), e.getMessage(), e);
+            throw new RuntimeException("Could not unenroll students: " + e.getMessage(), e);
+        }
+    }
+
+    // Имя нарушенного ограничения из ответа PostgreSQL (например, student_courses_course_id_fkey) или null
+    private static String violatedConstraint(SQLException e) {
+        if (e instanceof PSQLException && ((PSQLException) e).getServerErrorMessage() != null) {
+            return ((PSQLException) e).getServerErrorMessage().getConstraint();
+        }
+        return null;
+    }
+
     public boolean unenrollStudent(int studentCourseId) {
         // Перед удалением записи из student_courses, убедитесь, что оценки (grades) для этой записи удаляются
         // или обрабатываются. Схема БД с ON DELETE CASCADE для grades(student_course_id) позаботится об этом.
         String sql = "DELETE FROM student_courses WHERE student_course_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, studentCourseId);
-            int affectedRows = pstmt.executeUpdate();
+        try {
+            int affectedRows = QueryRunner.PRIMARY.update(sql, studentCourseId);
             if (affectedRows > 0) {
                 logger.info("Enrollment ID {} unenrolled successfully.", studentCourseId);
             }
@@ -63,77 +127,162 @@ public class EnrollmentDao {
     }
 
     public Optional<StudentCourse> findById(int studentCourseId) {
-        String sql = "SELECT student_course_id, student_id, course_id, enrollment_date FROM student_courses WHERE student_course_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, studentCourseId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRowToStudentCourse(rs));
-            }
+        String sql = "SELECT " + RowMappers.STUDENT_COURSE_COLUMNS + " FROM student_courses WHERE student_course_id = ?";
+        try {
+            return QueryRunner.READ.queryOne(sql, RowMappers.STUDENT_COURSE, studentCourseId);
         } catch (SQLException e) {
             logger.error("Error finding enrollment by ID {}: {}", studentCourseId, e.getMessage(), e);
         }
         return Optional.empty();
     }
 
+    /**
+     * Проверяет существование сразу многих записей одним запросом с = ANY(?).
+     * @return подмножество переданных ID, для которых запись существует.
+     */
+    public Set<Integer> findExistingIds(Collection<Integer> studentCourseIds) {
+        if (studentCourseIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        String sql = "SELECT student_course_id FROM student_courses WHERE student_course_id = ANY(?)";
+        try {
+            return new HashSet<>(QueryRunner.PRIMARY_READ.queryList(sql, RowMappers.INT, studentCourseIds.size(),
+                    (Object) QueryRunner.toIntArray(studentCourseIds)));
+        } catch (SQLException e) {
+            logger.error("Error checking existence of {} enrollments: {}", studentCourseIds.size(), e.getMessage(), e);
+            throw new RuntimeException("Could not check enrollments: " + e.getMessage(), e);
+        }
+    }
+
     public List<StudentCourse> findByStudentId(int studentId) {
-        List<StudentCourse> enrollments = new ArrayList<>();
-        String sql = "SELECT sc.student_course_id, sc.student_id, sc.course_id, sc.enrollment_date " +
-                "FROM student_courses sc " +
-                "WHERE sc.student_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, studentId);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                enrollments.add(mapRowToStudentCourse(rs));
-            }
+        String sql = "SELECT " + RowMappers.STUDENT_COURSE_COLUMNS + " FROM student_courses WHERE student_id = ?";
+        try {
+            return QueryRunner.READ.queryList(sql, RowMappers.STUDENT_COURSE, 0, studentId);
         } catch (SQLException e) {
             logger.error("Error finding enrollments for student ID {}: {}", studentId, e.getMessage(), e);
         }
-        return enrollments;
+        return new ArrayList<>();
     }
 
     public List<StudentCourse> findByCourseId(int courseId) {
-        List<StudentCourse> enrollments = new ArrayList<>();
-        String sql = "SELECT sc.student_course_id, sc.student_id, sc.course_id, sc.enrollment_date " +
-                "FROM student_courses sc " +
-                "WHERE sc.course_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, courseId);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                enrollments.add(mapRowToStudentCourse(rs));
-            }
+        String sql = "SELECT " + RowMappers.STUDENT_COURSE_COLUMNS + " FROM student_courses WHERE course_id = ?";
+        try {
+            return QueryRunner.READ.queryList(sql, RowMappers.STUDENT_COURSE, 0, courseId);
         } catch (SQLException e) {
             logger.error("Error finding enrollments for course ID {}: {}", courseId, e.getMessage(), e);
         }
-        return enrollments;
+        return new ArrayList<>();
+    }
+
+    // Студенты, записанные на курс; читается с основной БД, так как вызывается перед удалением курса
+    public Set<Integer> findStudentIdsByCourseId(int courseId) {
+        String sql = "SELECT DISTINCT student_id FROM student_courses WHERE course_id = ?";
+        try {
+            return new HashSet<>(QueryRunner.PRIMARY_READ.queryList(sql, RowMappers.INT, 0, courseId));
+        } catch (SQLException e) {
+            logger.error("Error finding students enrolled in course ID {}: {}", courseId, e.getMessage(), e);
+            throw new RuntimeException("Could not find course enrollments: " + e.getMessage(), e);
+        }
     }
 
     public List<StudentCourse> findAll() { // Новый метод
-        List<StudentCourse> enrollments = new ArrayList<>();
-        String sql = "SELECT student_course_id, student_id, course_id, enrollment_date FROM student_courses ORDER BY student_course_id";
-        try (Connection conn = DatabaseManager.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                enrollments.add(mapRowToStudentCourse(rs));
-            }
+        String sql = "SELECT " + RowMappers.STUDENT_COURSE_COLUMNS + " FROM student_courses ORDER BY student_course_id";
+        try {
+            // Без предварительного размера: лишний запрос к pg_class дороже нескольких расширений списка
+            return QueryRunner.READ.queryList(sql, RowMappers.STUDENT_COURSE, 0);
         } catch (SQLException e) {
             logger.error("Error finding all enrollments: {}", e.getMessage(), e);
         }
-        return enrollments;
+        return new ArrayList<>();
+    }
+
+    /**
+     * Возвращает страницу записей в порядке student_course_id, начиная строго после afterId (keyset-пагинация).
+     * @param afterId ID последней записи предыдущей страницы или 0 для первой страницы.
+     * @param limit максимальное число строк на странице.
+     */
+    public List<StudentCourse> findPage(int afterId, int limit) {
+        String sql = "SELECT " + RowMappers.STUDENT_COURSE_COLUMNS + " FROM student_courses " +
+                "WHERE student_course_id > ? ORDER BY student_course_id LIMIT ?";
+        try {
+            return QueryRunner.READ.queryList(sql, RowMappers.STUDENT_COURSE, limit, afterId, limit);
+        } catch (SQLException e) {
+            logger.error("Error finding enrollments page after ID {}: {}", afterId, e.getMessage(), e);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Читает все записи через серверный курсор (autocommit выключен, задан fetchSize)
+     * и передает каждую строку в consumer, не накапливая результат в памяти.
+     * @return количество переданных строк.
+     */
+    public long streamAll(Consumer<StudentCourse> consumer) {
+        String sql = "SELECT " + RowMappers.STUDENT_COURSE_COLUMNS + " FROM student_courses ORDER BY student_course_id";
+        long count = 0;
+        try (Connection conn = DatabaseManager.getReadConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(RowMappers.STUDENT_COURSE.map(rs));
+                        count++;
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Error streaming all enrollments after {} rows: {}", count, e.getMessage(), e);
+            throw new RuntimeException("Could not stream enrollments: " + e.getMessage(), e);
+        }
+        return count;
+    }
+
+    public long estimateCount() {
+        return DatabaseManager.estimateRowCount("student_courses");
     }
 
-    private StudentCourse mapRowToStudentCourse(ResultSet rs) throws SQLException {
-        return new StudentCourse(
-                rs.getInt("student_course_id"),
-                rs.getInt("student_id"),
-                rs.getInt("course_id"),
-                rs.getDate("enrollment_date").toLocalDate()
-        );
+    // Колонки результата массовой записи: student_id, course_id, created_id, created_date,
+    // existing_id, existing_date, student_exists, course_exists
+    private static final RowMapper<BulkEnrollmentRow> BULK_ENROLLMENT_ROW = rs -> {
+        int studentId = rs.getInt(1);
+        int courseId = rs.getInt(2);
+        StudentCourse created = null;
+        int createdId = rs.getInt(3);
+        if (!rs.wasNull()) {
+            created = new StudentCourse(createdId, studentId, courseId, rs.getObject(4, LocalDate.class));
+        }
+        StudentCourse existing = null;
+        int existingId = rs.getInt(5);
+        if (!rs.wasNull()) {
+            existing = new StudentCourse(existingId, studentId, courseId, rs.getObject(6, LocalDate.class));
+        }
+        return new BulkEnrollmentRow(studentId, courseId, created, existing, rs.getBoolean(7), rs.getBoolean(8));
+    };
+
+    // Итог массовой записи для одной пары (студент, курс)
+    public static class BulkEnrollmentRow {
+        public final int studentId;
+        public final int courseId;
+        public final StudentCourse created;  // Новая запись или null
+        public final StudentCourse existing; // Запись, существовавшая до вставки, или null
+        public final boolean studentExists;
+        public final boolean courseExists;
+
+        public BulkEnrollmentRow(int studentId, int courseId, StudentCourse created, StudentCourse existing,
+                                 boolean studentExists, boolean courseExists) {
+            this.studentId = studentId;
+            this.courseId = courseId;
+            this.created = created;
+            this.existing = existing;
+            this.studentExists = studentExists;
+            this.courseExists = courseExists;
+        }
     }
-}
\ No newline at end of file
+}
@@ -15,26 +15,11 @@ public class GradeDao {
 
     public Grade save(Grade grade) {
         String sql = "INSERT INTO grades (student_course_id, grade_value, grade_date, comments) VALUES (?, ?, ?, ?) RETURNING grade_id";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setInt(1, grade.getStudentCourseId());
-            pstmt.setString(2, grade.getGradeValue());
-            pstmt.setDate(3, grade.getGradeDate() != null ? Date.valueOf(grade.getGradeDate()) : Date.valueOf(LocalDate.now()));
-            pstmt.setString(4, grade.getComments());
-
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Creating grade failed, no rows affected.");
-            }
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    grade.setGradeId(generatedKeys.getInt(1));
-                    logger.info("Grade saved successfully for enrollment ID {}. Grade ID: {}", grade.getStudentCourseId(), grade.getGradeId());
-                    return grade;
-                } else {
-                    throw new SQLException("Creating grade failed, no ID obtained.");
-                }
-            }
+        try {
+            grade.setGradeId(QueryRunner.PRIMARY.insertReturningId(sql, "Creating grade failed",
+                    grade.getStudentCourseId(), grade.getGradeValue(), gradeDateOrToday(grade), grade.getComments()));
+            logger.info("Grade saved successfully for enrollment ID {}. Grade ID: {}", grade.getStudentCourseId(), grade.getGradeId());
+            return grade;
         } catch (SQLException e) {
             // Проверка на foreign key constraint violation (если student_course_id не существует)
             if (e.getSQLState().startsWith("23")) { // Коды ошибок SQL, связанные с целостностью данных
@@ -46,15 +31,54 @@ public class GradeDao {
         }
     }
 
-    public Optional<Grade> findById(int gradeId) {
-        String sql = "SELECT grade_id, student_course_id, grade_value, grade_date, comments FROM grades WHERE grade_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, gradeId);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRowToGrade(rs));
+    /**
+     * Сохраняет оценки одним JDBC-пакетом (addBatch/executeBatch) в одной транзакции.
+     * Либо сохраняются все оценки, либо ни одной. Присвоенные grade_id проставляются в переданные объекты.
+     */
+    public List<Grade> saveAll(List<Grade> grades) {
+        String sql = "INSERT INTO grades (student_course_id, grade_value, grade_date, comments) VALUES (?, ?, ?, ?)";
+        DatabaseManager.markWrite();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, new String[]{"grade_id"})) {
+                for (Grade grade : grades) {
+                    QueryRunner.bind(pstmt, grade.getStudentCourseId(), grade.getGradeValue(), gradeDateOrToday(grade), grade.getComments());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
+                    for (Grade grade : grades) {
+                        if (!generatedKeys.next()) {
+                            throw new SQLException("Creating grades batch failed, not all IDs obtained.");
+                        }
+                        grade.setGradeId(generatedKeys.getInt(1));
+                    }
+                }
+                conn.commit();
+                logger.info("Grades batch of {} saved successfully.", grades.size());
+                return grades;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
+        } catch (SQLException e) {
+            // executeBatch оборачивает исходную ошибку в BatchUpdateException
+            SQLException cause = e.getNextException() != null ? e.getNextException() : e;
+            if (cause.getSQLState() != null && cause.getSQLState().startsWith("23")) {
+                logger.warn("Failed to save grades batch due to data integrity violation: {}", cause.getMessage());
+                throw new RuntimeException("Cannot save grades: Invalid student enrollment reference.", e);
+            }
+            logger.error("Error saving grades batch of {}: {}", grades.size(), cause.getMessage(), e);
+            throw new RuntimeException("Could not save grades: " + cause.getMessage(), e);
+        }
+    }
+
+    public Optional<Grade> findById(int gradeId) {
+        String sql = "SELECT " + RowMappers.GRADE_COLUMNS + " FROM grades WHERE grade_id = ?";
+        try {
+            return QueryRunner.READ.queryOne(sql, RowMappers.GRADE, gradeId);
         } catch (SQLException e) {
             logger.error("Error finding grade by ID {}: {}", gradeId, e.getMessage(), e);
         }
@@ -62,52 +86,35 @@ public class GradeDao {
     }
 
     public List<Grade> findByStudentCourseId(int studentCourseId) {
-        List<Grade> grades = new ArrayList<>();
-        String sql = "SELECT grade_id, student_course_id, grade_value, grade_date, comments FROM grades WHERE student_course_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, studentCourseId);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                grades.add(mapRowToGrade(rs));
-            }
+        String sql = "SELECT " + RowMappers.GRADE_COLUMNS + " FROM grades WHERE student_course_id = ?";
+        try {
+            return QueryRunner.READ.queryList(sql, RowMappers.GRADE, 0, studentCourseId);
         } catch (SQLException e) {
             logger.error("Error finding grades for student_course_id {}: {}", studentCourseId, e.getMessage(), e);
         }
-        return grades;
+        return new ArrayList<>();
     }
 
     // Получение всех оценок для конкретного студента по всем его курсам
     public List<Grade> findByStudentId(int studentId) {
-        List<Grade> grades = new ArrayList<>();
-        String sql = "SELECT g.grade_id, g.student_course_id, g.grade_value, g.grade_date, g.comments " +
+        String sql = "SELECT " + RowMappers.qualified("g", RowMappers.GRADE_COLUMNS) + " " +
                 "FROM grades g " +
                 "JOIN student_courses sc ON g.student_course_id = sc.student_course_id " +
                 "WHERE sc.student_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, studentId);
-            ResultSet rs = pstmt.executeQuery();
-            while (rs.next()) {
-                grades.add(mapRowToGrade(rs));
-            }
+        try {
+            return QueryRunner.READ.queryList(sql, RowMappers.GRADE, 0, studentId);
         } catch (SQLException e) {
             logger.error("Error finding grades for student ID {}: {}", studentId, e.getMessage(), e);
         }
-        return grades;
+        return new ArrayList<>();
     }
 
 
     public boolean update(Grade grade) {
         String sql = "UPDATE grades SET student_course_id = ?, grade_value = ?, grade_date = ?, comments = ? WHERE grade_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, grade.getStudentCourseId());
-            pstmt.setString(2, grade.getGradeValue());
-            pstmt.setDate(3, grade.getGradeDate() != null ? Date.valueOf(grade.getGradeDate()) : Date.valueOf(LocalDate.now()));
-            pstmt.setString(4, grade.getComments());
-            pstmt.setInt(5, grade.getGradeId());
-            int affectedRows = pstmt.executeUpdate();
+        try {
+            int affectedRows = QueryRunner.PRIMARY.update(sql, grade.getStudentCourseId(), grade.getGradeValue(),
+                    gradeDateOrToday(grade), grade.getComments(), grade.getGradeId());
             if (affectedRows > 0) {
                 logger.info("Grade ID {} updated successfully.", grade.getGradeId());
             }
@@ -124,10 +131,8 @@ public class GradeDao {
 
     public boolean delete(int gradeId) {
         String sql = "DELETE FROM grades WHERE grade_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, gradeId);
-            int affectedRows = pstmt.executeUpdate();
+        try {
+            int affectedRows = QueryRunner.PRIMARY.update(sql, gradeId);
             if (affectedRows > 0) {
                 logger.info("Grade ID {} deleted successfully.", gradeId);
             }
@@ -138,15 +143,7 @@ public class GradeDao {
         }
     }
 
-    private Grade mapRowToGrade(ResultSet rs) throws SQLException {
-        Date gradeDateSql = rs.getDate("grade_date");
-        LocalDate gradeDate = (gradeDateSql != null) ? gradeDateSql.toLocalDate() : null;
-        return new Grade(
-                rs.getInt("grade_id"),
-                rs.getInt("student_course_id"),
-                rs.getString("grade_value"),
-                gradeDate,
-                rs.getString("comments")
-        );
+    private static LocalDate gradeDateOrToday(Grade grade) {
+        return grade.getGradeDate() != null ? grade.getGradeDate() : LocalDate.now();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,202 @@
+package org.example.education.dao;
+
+import org.example.education.model.GradeSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Материализованные агрегаты успеваемости (таблица student_grade_summary).
+ * Строка студента пересчитывается целиком по его оценкам при каждом изменении оценок или записей,
+ * поэтому чтение сводки и рейтинг группы не сканируют таблицу grades.
+ */
+public class GradeSummaryDao {
+    private static final Logger logger = LoggerFactory.getLogger(GradeSummaryDao.class);
+
+    // Числовые оценки ("5", "4.5", "4,5") участвуют в GPA, остальные ("зачет", "A") только в счетчиках.
+    // Не больше трех цифр до запятой: среднее всегда помещается в gpa NUMERIC(6,2), и одна ошибочная
+    // оценка вроде "10000" не ломает пересчет студента (и полный пересчет сводки)
+    private static final String NUMERIC_GRADE =
+            "CASE WHEN g.grade_value ~ '^\\s*[0-9]{1,3}([.,][0-9]+)?\\s*$' " +
+            "THEN replace(trim(g.grade_value), ',', '.')::numeric END";
+
+    // Пересчет по студентам; условие WHERE подставляется вызывающим методом
+    private static final String REFRESH_SQL =
+            "INSERT INTO student_grade_summary (student_id, course_count, grade_count, numeric_grade_count, gpa, updated_at) " +
+            "SELECT s.student_id, COUNT(DISTINCT g.student_course_id), COUNT(g.grade_id), " +
+            "COUNT(" + NUMERIC_GRADE + "), ROUND(AVG(" + NUMERIC_GRADE + "), 2), CURRENT_TIMESTAMP " +
+            "FROM students s " +
+            "LEFT JOIN student_courses sc ON sc.student_id = s.student_id " +
+            "LEFT JOIN grades g ON g.student_course_id = sc.student_course_id " +
+            "%s " +
+            "GROUP BY s.student_id " +
+            "ON CONFLICT (student_id) DO UPDATE SET course_count = EXCLUDED.course_count, " +
+            "grade_count = EXCLUDED.grade_count, numeric_grade_count = EXCLUDED.numeric_grade_count, " +
+            "gpa = EXCLUDED.gpa, updated_at = EXCLUDED.updated_at";
+
+    // Студент без строки в сводке (еще не пересчитан) отдается с нулевыми счетчиками.
+    // Порядок колонок соответствует SUMMARY; рейтинг в группе, если запрошен, идет десятой колонкой.
+    private static final String SELECT_SUMMARY =
+            "SELECT s.student_id, s.first_name, s.last_name, s.group_name, " +
+            "COALESCE(gs.course_count, 0) AS course_count, COALESCE(gs.grade_count, 0) AS grade_count, " +
+            "COALESCE(gs.numeric_grade_count, 0) AS numeric_grade_count, gs.gpa, gs.updated_at";
+
+    /**
+     * Пересчитывает сводку для указанных студентов.
+     * @return число обновленных строк сводки.
+     */
+    public int refreshForStudents(Collection<Integer> studentIds) {
+        if (studentIds.isEmpty()) {
+            return 0;
+        }
+        String lockSql = "SELECT student_id FROM students WHERE student_id = ANY(?) ORDER BY student_id FOR NO KEY UPDATE";
+        try {
+            return refreshLocked(lockSql, QueryRunner.toIntArray(studentIds));
+        } catch (SQLException e) {
+            logger.error("Error refreshing grade summary for students {}: {}", studentIds, e.getMessage(), e);
+            throw new RuntimeException("Could not refresh grade summary: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Пересчитывает сводку для студентов, которым принадлежат записи на курсы (student_course_id).
+     * @return число обновленных строк сводки.
+     */
+    public int refreshForStudentCourses(Collection<Integer> studentCourseIds) {
+        if (studentCourseIds.isEmpty()) {
+            return 0;
+        }
+        String lockSql = "SELECT student_id FROM students WHERE student_id IN " +
+                "(SELECT student_id FROM student_courses WHERE student_course_id = ANY(?)) ORDER BY student_id FOR NO KEY UPDATE";
+        try {
+            return refreshLocked(lockSql, QueryRunner.toIntArray(studentCourseIds));
+        } catch (SQLException e) {
+            logger.error("Error refreshing grade summary for enrollments {}: {}", studentCourseIds, e.getMessage(), e);
+            throw new RuntimeException("Could not refresh grade summary: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Блокирует строки студентов (lockSql) и пересчитывает их сводку в той же транзакции.
+     * Без блокировки два одновременных пересчета одного студента могли закончиться в обратном порядке,
+     * и более старый снимок оценок затер бы более новый. Пересчет выполняется отдельным оператором уже
+     * после получения блокировки, поэтому (READ COMMITTED) видит все оценки, записанные до нее.
+     * FOR NO KEY UPDATE не мешает проверкам внешних ключей при записи на курс; порядок по student_id
+     * исключает взаимоблокировку пересчетов с пересекающимися наборами студентов.
+     */
+    private int refreshLocked(String lockSql, int[] ids) throws SQLException {
+        DatabaseManager.markWrite();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                List<Integer> lockedIds;
+                try (PreparedStatement pstmt = conn.prepareStatement(lockSql)) {
+                    QueryRunner.bind(pstmt, (Object) ids);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        lockedIds = new ArrayList<>(ids.length);
+                        while (rs.next()) {
+                            lockedIds.add(rs.getInt(1));
+                        }
+                    }
+                }
+                int refreshed = 0;
+                if (!lockedIds.isEmpty()) {
+                    try (PreparedStatement pstmt = conn.prepareStatement(String.format(REFRESH_SQL, "WHERE s.student_id = ANY(?)"))) {
+                        QueryRunner.bind(pstmt, (Object) QueryRunner.toIntArray(lockedIds));
+                        refreshed = pstmt.executeUpdate();
+                    }
+                }
+                conn.commit();
+                return refreshed;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Полный пересчет сводки по всем студентам (чтобы учесть изменения оценок в обход API).
+     * Блокировка таблицы сводки дожидается уже начатых пересчетов и не дает новым записать
+     * результат раньше, чем закончится полный пересчет, поэтому его можно выполнять под нагрузкой.
+     * @return число строк сводки.
+     */
+    public int rebuildAll() {
+        DatabaseManager.markWrite();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("LOCK TABLE student_grade_summary IN SHARE ROW EXCLUSIVE MODE");
+                int rows = stmt.executeUpdate(String.format(REFRESH_SQL, ""));
+                conn.commit();
+                return rows;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Error rebuilding grade summary: {}", e.getMessage(), e);
+            throw new RuntimeException("Could not rebuild grade summary: " + e.getMessage(), e);
+        }
+    }
+
+    public Optional<GradeSummary> findByStudentId(int studentId) {
+        String sql = SELECT_SUMMARY + " FROM students s " +
+                "LEFT JOIN student_grade_summary gs ON gs.student_id = s.student_id WHERE s.student_id = ?";
+        try {
+            return QueryRunner.READ.queryOne(sql, SUMMARY, studentId);
+        } catch (SQLException e) {
+            logger.error("Error finding grade summary for student ID {}: {}", studentId, e.getMessage(), e);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Студенты группы в порядке рейтинга (по GPA по убыванию, студенты без GPA в конце).
+     */
+    public List<GradeSummary> findByGroupRanked(String groupName) {
+        String sql = SELECT_SUMMARY + ", RANK() OVER (ORDER BY gs.gpa DESC NULLS LAST) AS group_rank " +
+                "FROM students s LEFT JOIN student_grade_summary gs ON gs.student_id = s.student_id " +
+                "WHERE s.group_name = ? ORDER BY group_rank, s.last_name, s.first_name, s.student_id";
+        try {
+            return QueryRunner.READ.queryList(sql, RANKED_SUMMARY, 0, groupName);
+        } catch (SQLException e) {
+            logger.error("Error finding grade summaries for group {}: {}", groupName, e.getMessage(), e);
+        }
+        return new ArrayList<>();
+    }
+
+    private static final RowMapper<GradeSummary> SUMMARY = rs -> {
+        GradeSummary summary = new GradeSummary();
+        summary.setStudentId(rs.getInt(1));
+        summary.setFirstName(rs.getString(2));
+        summary.setLastName(rs.getString(3));
+        summary.setGroupName(rs.getString(4));
+        summary.setCourseCount(rs.getInt(5));
+        summary.setGradeCount(rs.getInt(6));
+        summary.setNumericGradeCount(rs.getInt(7));
+        summary.setGpa(rs.getBigDecimal(8));
+        summary.setUpdatedAt(rs.getObject(9, LocalDateTime.class));
+        return summary;
+    };
+
+    private static final RowMapper<GradeSummary> RANKED_SUMMARY = rs -> {
+        GradeSummary summary = SUMMARY.map(rs);
+        summary.setRank(rs.getInt(10));
+        return summary;
+    };
+}
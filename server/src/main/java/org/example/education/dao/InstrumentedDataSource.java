@@ -0,0 +1,242 @@
+package org.example.education.dao;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import org.example.education.util.Metrics;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Обертка над пулом Hikari, собирающая метрики по каждому отдельному SQL-оператору:
+ * db.sql.statements (число выполнений и гистограмма задержки execute*) и db.sql.rows
+ * (число строк, прочитанных из ResultSet за выполнение) с тегами pool и statement.
+ * Тег statement - короткий идентификатор (хеш текста оператора), а не сам SQL: /metrics доступен без токена
+ * и не должен раскрывать схему БД. Соответствие идентификатора тексту пишется в лог один раз на оператор.
+ * Соединения, операторы и ResultSet оборачиваются динамическими прокси, поэтому метрики
+ * собираются для всех DAO, включая запросы мимо QueryRunner, без изменений в их коде.
+ * Метрики самого пула (hikaricp.connections.active/idle/pending/acquire) Hikari пишет в тот же реестр.
+ */
+final class InstrumentedDataSource implements DataSource, Closeable {
+    // Полное имя: java.util.logging.Logger уже импортирован для getParentLogger
+    private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(InstrumentedDataSource.class);
+    static final String SQL_STATEMENTS = "db.sql.statements";
+    static final String SQL_ROWS = "db.sql.rows";
+    // Операторы - тексты с параметрами "?", поэтому число рядов ограничено числом операторов в коде;
+    // предел защищает реестр, если SQL вдруг начнут собирать со значениями
+    private static final int MAX_DISTINCT_STATEMENTS = 500;
+    private static final int STATEMENT_ID_HEX_LENGTH = 12;
+    private static final int MAX_LOGGED_SQL_LENGTH = 500; // Скрипты миграций выполняются одним оператором
+    private static final String OTHER_SQL = "other";
+
+    private final HikariDataSource delegate;
+    private final String pool;
+    private final Map<String, StatementMeters> metersBySql = new ConcurrentHashMap<>();
+
+    // Тег pool совпадает с тегом метрик Hikari (имя пула), чтобы ряды SQL и пула можно было сопоставить
+    InstrumentedDataSource(HikariDataSource delegate) {
+        this.delegate = delegate;
+        this.pool = delegate.getPoolName();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrapConnection(delegate.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrapConnection(delegate.getConnection(username, password));
+    }
+
+    boolean isClosed() {
+        return delegate.isClosed();
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return iface.isInstance(delegate) ? iface.cast(delegate) : delegate.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+    }
+
+    // prepareStatement(sql, ...), prepareCall(sql, ...) и createStatement() возвращают оператор-обертку
+    private Connection wrapConnection(Connection connection) {
+        return proxy(Connection.class, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement) {
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                return wrapStatement((Statement) result, method.getReturnType(), sql, (Connection) proxy);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Для PreparedStatement текст известен при подготовке, для Statement - передается в execute*(sql).
+     * Время выполнения пишется и при ошибке оператора.
+     */
+    private Object wrapStatement(Statement statement, Class<?> type, String preparedSql, Connection connectionProxy) {
+        StatementMeters[] lastExecuted = new StatementMeters[1];
+        return proxy(type, (proxy, method, args) -> {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                String sql = preparedSql != null ? preparedSql
+                        : args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                StatementMeters meters = meters(sql);
+                lastExecuted[0] = meters;
+                long start = System.nanoTime();
+                Object result;
+                try {
+                    result = invoke(statement, method, args);
+                } finally {
+                    meters.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+                return result instanceof ResultSet ? wrapResultSet((ResultSet) result, meters) : result;
+            }
+            if (name.equals("getResultSet")) {
+                Object result = invoke(statement, method, args);
+                return result instanceof ResultSet && lastExecuted[0] != null
+                        ? wrapResultSet((ResultSet) result, lastExecuted[0]) : result;
+            }
+            if (name.equals("getConnection")) {
+                return connectionProxy;
+            }
+            return invoke(statement, method, args);
+        });
+    }
+
+    // Считает строки, отданные next(), и записывает их число при закрытии ResultSet
+    private ResultSet wrapResultSet(ResultSet resultSet, StatementMeters meters) {
+        long[] rows = new long[1];
+        boolean[] recorded = new boolean[1];
+        return proxy(ResultSet.class, (proxy, method, args) -> {
+            Object result = invoke(resultSet, method, args);
+            String name = method.getName();
+            if (name.equals("next") && Boolean.TRUE.equals(result)) {
+                rows[0]++;
+            } else if (name.equals("close") && !recorded[0]) {
+                recorded[0] = true;
+                meters.rows.record(rows[0]);
+            }
+            return result;
+        });
+    }
+
+    private StatementMeters meters(String sql) {
+        String key = sql != null ? sql : OTHER_SQL;
+        StatementMeters meters = metersBySql.get(key);
+        if (meters != null) {
+            return meters;
+        }
+        if (metersBySql.size() >= MAX_DISTINCT_STATEMENTS) {
+            key = OTHER_SQL;
+        }
+        return metersBySql.computeIfAbsent(key, k -> {
+            if (k.equals(OTHER_SQL)) {
+                return new StatementMeters(pool, OTHER_SQL);
+            }
+            String normalized = normalize(k);
+            String statementId = statementId(normalized);
+            logger.info("SQL statement {} (pool {}): {}", statementId, pool, normalized.length() > MAX_LOGGED_SQL_LENGTH
+                    ? normalized.substring(0, MAX_LOGGED_SQL_LENGTH) + "..." : normalized);
+            return new StatementMeters(pool, statementId);
+        });
+    }
+
+    // Схлопывает переводы строк и отступы многострочных SQL-констант
+    private static String normalize(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+
+    // Первые символы SHA-256 нормализованного текста: одинаковы между перезапусками и экземплярами сервера
+    private static String statementId(String normalizedSql) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(normalizedSql.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest).substring(0, STATEMENT_ID_HEX_LENGTH);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return (T) Proxy.newProxyInstance(InstrumentedDataSource.class.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause(); // SQLException драйвера доходит до DAO без обертки
+        }
+    }
+
+    private static final class StatementMeters {
+        private final Timer latency;
+        private final DistributionSummary rows;
+
+        private StatementMeters(String pool, String statementId) {
+            latency = Timer.builder(SQL_STATEMENTS)
+                    .description("SQL statement execution time")
+                    .tags("pool", pool, "statement", statementId)
+                    .register(Metrics.registry());
+            rows = DistributionSummary.builder(SQL_ROWS)
+                    .description("Rows read from the result set per execution")
+                    .tags("pool", pool, "statement", statementId)
+                    .register(Metrics.registry());
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package org.example.education.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Применяет версионные SQL-скрипты из classpath (db/migration/V{n}__описание.sql) при старте сервера.
+ * Примененные версии хранятся в таблице schema_migrations, поэтому повторный запуск ничего не делает.
+ * Обычный скрипт выполняется в одной транзакции вместе с записью о версии. Скрипт с первой строкой
+ * "-- migration: no-transaction" выполняется по одному оператору в autocommit: это нужно для
+ * CREATE INDEX CONCURRENTLY, который строит индекс без блокировки записи, но не работает внутри транзакции.
+ * Несколько экземпляров сервера не применяют миграции одновременно благодаря advisory lock.
+ */
+public class MigrationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(MigrationRunner.class);
+
+    private static final String MIGRATION_PATH = "/db/migration/";
+    // Новые скрипты добавляются в конец списка; номер версии берется из имени файла
+    private static final List<String> MIGRATIONS = List.of(
+            "V1__baseline.sql",
+            "V2__hot_path_indexes.sql",
+            "V3__student_search_indexes.sql",
+            "V4__revoked_tokens.sql",
+            "V5__user_credentials_view.sql",
+            "V6__refresh_tokens.sql",
+            "V7__students_keyset_index.sql"
+    );
+
+    private static final String NO_TRANSACTION_MARKER = "-- migration: no-transaction";
+    private static final Pattern FILE_NAME = Pattern.compile("V(\\d+)__(\\w+)\\.sql");
+    private static final Pattern CONCURRENT_INDEX = Pattern.compile(
+            "CREATE\\s+(?:UNIQUE\\s+)?INDEX\\s+CONCURRENTLY\\s+IF\\s+NOT\\s+EXISTS\\s+(\\w+)", Pattern.CASE_INSENSITIVE);
+    private static final long ADVISORY_LOCK_KEY = 7_262_013L;
+
+    private static final String CREATE_HISTORY_TABLE =
+            "CREATE TABLE IF NOT EXISTS schema_migrations (" +
+            "version INT PRIMARY KEY, " +
+            "description VARCHAR(255) NOT NULL, " +
+            "checksum CHAR(64) NOT NULL, " +
+            "execution_ms BIGINT NOT NULL, " +
+            "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)";
+
+    private MigrationRunner() {}
+
+    /**
+     * Применяет недостающие миграции через переданное соединение (режим autocommit восстанавливается после работы).
+     * @return число примененных миграций.
+     */
+    public static int migrate(Connection conn) throws SQLException {
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(true);
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("SELECT pg_advisory_lock(" + ADVISORY_LOCK_KEY + ")");
+            try {
+                stmt.execute(CREATE_HISTORY_TABLE);
+                Map<Integer, String> applied = loadAppliedChecksums(conn);
+                int count = 0;
+                for (String fileName : MIGRATIONS) {
+                    Migration migration = load(fileName);
+                    String checksum = applied.get(migration.version);
+                    if (checksum != null) {
+                        if (!checksum.equals(migration.checksum)) {
+                            logger.warn("Migration {} was modified after it had been applied (checksum mismatch); " +
+                                    "changes must go to a new migration.", fileName);
+                        }
+                        continue;
+                    }
+                    apply(conn, migration);
+                    count++;
+                }
+                return count;
+            } finally {
+                stmt.execute("SELECT pg_advisory_unlock(" + ADVISORY_LOCK_KEY + ")");
+            }
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+    }
+
+    private static Map<Integer, String> loadAppliedChecksums(Connection conn) throws SQLException {
+        Map<Integer, String> applied = new HashMap<>();
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT version, checksum FROM schema_migrations")) {
+            while (rs.next()) {
+                applied.put(rs.getInt("version"), rs.getString("checksum"));
+            }
+        }
+        return applied;
+    }
+
+    private static void apply(Connection conn, Migration migration) throws SQLException {
+        logger.info("Applying migration V{} ({}){}...", migration.version, migration.description,
+                migration.transactional ? "" : " without transaction");
+        long start = System.currentTimeMillis();
+        if (migration.transactional) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute(migration.script);
+                recordApplied(conn, migration, System.currentTimeMillis() - start);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw new SQLException("Migration V" + migration.version + " failed: " + e.getMessage(), e);
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } else {
+            try (Statement stmt = conn.createStatement()) {
+                for (String sql : splitStatements(migration.script)) {
+                    dropInvalidIndex(conn, sql);
+                    stmt.execute(sql);
+                }
+                recordApplied(conn, migration, System.currentTimeMillis() - start);
+            } catch (SQLException e) {
+                // Уже выполненные операторы не откатываются, поэтому скрипт должен быть идемпотентным (IF NOT EXISTS)
+                throw new SQLException("Migration V" + migration.version + " failed: " + e.getMessage(), e);
+            }
+        }
+        logger.info("Migration V{} applied in {} ms.", migration.version, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Прерванный CREATE INDEX CONCURRENTLY оставляет невалидный индекс, который IF NOT EXISTS пропустил бы.
+     * Такой индекс удаляется перед повторной попыткой.
+     */
+    private static void dropInvalidIndex(Connection conn, String sql) throws SQLException {
+        Matcher matcher = CONCURRENT_INDEX.matcher(sql);
+        if (!matcher.find()) {
+            return;
+        }
+        String indexName = matcher.group(1);
+        String checkSql = "SELECT 1 FROM pg_index i JOIN pg_class c ON c.oid = i.indexrelid " +
+                "WHERE c.relname = ? AND NOT i.indisvalid";
+        boolean invalid;
+        try (PreparedStatement pstmt = conn.prepareStatement(checkSql)) {
+            pstmt.setString(1, indexName.toLowerCase());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                invalid = rs.next();
+            }
+        }
+        if (invalid) {
+            logger.warn("Dropping invalid index {} left by an interrupted migration.", indexName);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("DROP INDEX CONCURRENTLY IF EXISTS " + indexName);
+            }
+        }
+    }
+
+    private static void recordApplied(Connection conn, Migration migration, long executionMs) throws SQLException {
+        String sql = "INSERT INTO schema_migrations (version, description, checksum, execution_ms) VALUES (?, ?, ?, ?)";
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, migration.version);
+            pstmt.setString(2, migration.description);
+            pstmt.setString(3, migration.checksum);
+            pstmt.setLong(4, executionMs);
+            pstmt.executeUpdate();
+        }
+    }
+
+    // Разбор по ';' в конце строки: в скриптах без транзакции не должно быть функций и строк с ';'
+    private static List<String> splitStatements(String script) {
+        List<String> statements = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : script.split("\\R")) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("--")) {
+                continue;
+            }
+            current.append(line).append('\n');
+            if (trimmed.endsWith(";")) {
+                statements.add(current.toString().trim());
+                current.setLength(0);
+            }
+        }
+        if (!current.toString().isBlank()) {
+            statements.add(current.toString().trim());
+        }
+        return statements;
+    }
+
+    private static Migration load(String fileName) throws SQLException {
+        Matcher matcher = FILE_NAME.matcher(fileName);
+        if (!matcher.matches()) {
+            throw new IllegalArgumentException("Invalid migration file name: " + fileName);
+        }
+        String script;
+        try (InputStream input = MigrationRunner.class.getResourceAsStream(MIGRATION_PATH + fileName)) {
+            if (input == null) {
+                throw new SQLException("Migration " + MIGRATION_PATH + fileName + " not found in classpath.");
+            }
+            script = new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SQLException("Could not read migration " + fileName + ": " + e.getMessage(), e);
+        }
+        return new Migration(Integer.parseInt(matcher.group(1)), matcher.group(2).replace('_', ' '),
+                script, sha256(script), !script.startsWith(NO_TRANSACTION_MARKER));
+    }
+
+    private static String sha256(String script) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(script.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Migration(int version, String description, String script, String checksum, boolean transactional) {}
+}
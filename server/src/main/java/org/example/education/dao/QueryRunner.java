@@ -0,0 +1,114 @@
+package org.example.education.dao;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Общий слой выполнения запросов для DAO: берет соединение, готовит оператор, привязывает параметры,
+ * маппит строки и закрывает ресурсы. Ошибки пробрасываются как SQLException, чтобы каждый DAO
+ * сам решал, что делать с кодом SQLState (23505, 23503 и т.д.) и как логировать.
+ * READ выполняет запросы на реплике (если она настроена), PRIMARY - записи на основной БД,
+ * PRIMARY_READ - чтения с основной БД. Записью (закрепление пользователя за основной БД) считаются
+ * только update, insertReturningId и updateReturning, но не queryOne/queryList.
+ */
+final class QueryRunner {
+    // Верхняя граница предварительного размера списка: подсказка (LIMIT, оценка числа строк) может быть завышена
+    private static final int MAX_PRESIZE = 10_000;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    static final QueryRunner READ = new QueryRunner(DatabaseManager::getReadConnection);
+    static final QueryRunner PRIMARY = new QueryRunner(DatabaseManager::getConnection);
+    static final QueryRunner PRIMARY_READ = new QueryRunner(DatabaseManager::getPrimaryReadConnection);
+
+    @FunctionalInterface
+    interface ConnectionSource {
+        Connection get() throws SQLException;
+    }
+
+    private final ConnectionSource connectionSource;
+
+    private QueryRunner(ConnectionSource connectionSource) {
+        this.connectionSource = connectionSource;
+    }
+
+    <T> Optional<T> queryOne(String sql, RowMapper<T> mapper, Object... params) throws SQLException {
+        try (Connection conn = connectionSource.get();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? Optional.of(mapper.map(rs)) : Optional.empty();
+            }
+        }
+    }
+
+    /**
+     * @param expectedRows ожидаемое число строк (LIMIT, оценка размера таблицы) для начальной емкости списка,
+     *                     0 - неизвестно.
+     */
+    <T> List<T> queryList(String sql, RowMapper<T> mapper, long expectedRows, Object... params) throws SQLException {
+        try (Connection conn = connectionSource.get();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                List<T> rows = new ArrayList<>(initialCapacity(expectedRows));
+                while (rs.next()) {
+                    rows.add(mapper.map(rs));
+                }
+                return rows;
+            }
+        }
+    }
+
+    // INSERT/UPDATE/DELETE без результата
+    int update(String sql, Object... params) throws SQLException {
+        DatabaseManager.markWrite();
+        try (Connection conn = connectionSource.get();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            bind(pstmt, params);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Выполняет INSERT ... RETURNING <id> и возвращает сгенерированный ключ.
+     * @throws SQLException если строка не вставлена (errorPrefix + ", no ID obtained.").
+     */
+    int insertReturningId(String sql, String errorPrefix, Object... params) throws SQLException {
+        DatabaseManager.markWrite();
+        Optional<Integer> id = queryOne(sql, RowMappers.INT, params);
+        if (id.isEmpty()) {
+            throw new SQLException(errorPrefix + ", no ID obtained.");
+        }
+        return id.get();
+    }
+
+    // INSERT/UPDATE/DELETE ... RETURNING: строки результата, как у queryList
+    <T> List<T> updateReturning(String sql, RowMapper<T> mapper, long expectedRows, Object... params) throws SQLException {
+        DatabaseManager.markWrite();
+        return queryList(sql, mapper, expectedRows, params);
+    }
+
+    /**
+     * Привязывает параметры по порядку через setObject: pgjdbc сам выбирает тип для Integer, String,
+     * LocalDate, LocalDateTime, null и примитивных массивов (int[] для = ANY(?) и unnest(?::int[])).
+     */
+    static void bind(PreparedStatement pstmt, Object... params) throws SQLException {
+        for (int i = 0; i < params.length; i++) {
+            pstmt.setObject(i + 1, params[i]);
+        }
+    }
+
+    static int initialCapacity(long expectedRows) {
+        return expectedRows > 0 ? (int) Math.min(expectedRows, MAX_PRESIZE) : DEFAULT_CAPACITY;
+    }
+
+    static int[] toIntArray(Collection<Integer> ids) {
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
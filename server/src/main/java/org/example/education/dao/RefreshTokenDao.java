@@ -0,0 +1,112 @@
+package org.example.education.dao;
+
+import org.example.education.model.UserType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Хранилище refresh-токенов (таблица refresh_tokens). Токены хранятся только в виде SHA-256:
+ * утечка таблицы не дает пригодных для обновления сессии значений.
+ */
+public class RefreshTokenDao {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenDao.class);
+
+    // Пользователь, которому выдан токен, с актуальными email и ролью из user_credentials
+    public static class RefreshPrincipal {
+        public final UserType userType;
+        public final int userId;
+        public final String email;
+        public final String role;
+
+        public RefreshPrincipal(UserType userType, int userId, String email, String role) {
+            this.userType = userType;
+            this.userId = userId;
+            this.email = email;
+            this.role = role;
+        }
+    }
+
+    private static final RowMapper<RefreshPrincipal> REFRESH_PRINCIPAL = rs -> new RefreshPrincipal(
+            UserType.valueOf(rs.getString(1)), rs.getInt(2), rs.getString(3), rs.getString(4));
+
+    /**
+     * Записывает токен нового семейства (при входе по паролю).
+     * @throws RuntimeException если запись не удалась.
+     */
+    public void insert(String tokenHash, UUID familyId, UserType userType, int userId, LocalDateTime expiresAt) {
+        String sql = "INSERT INTO refresh_tokens (token_hash, family_id, user_type, user_id, expires_at) VALUES (?, ?, ?, ?, ?)";
+        try {
+            QueryRunner.PRIMARY.update(sql, tokenHash, familyId, userType.name(), userId, expiresAt);
+        } catch (SQLException e) {
+            logger.error("Error saving refresh token for {} {}: {}", userType, userId, e.getMessage(), e);
+            throw new RuntimeException("Could not save refresh token: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Одним оператором помечает действующий токен использованным, записывает новый токен того же
+     * семейства и возвращает пользователя. Пусто, если токен неизвестен, истек, уже использован
+     * или пользователь удален. Два одновременных обновления одним токеном не пройдут оба:
+     * UPDATE ... WHERE used_at IS NULL срабатывает только один раз.
+     */
+    public Optional<RefreshPrincipal> rotate(String tokenHash, String newTokenHash, LocalDateTime newExpiresAt) {
+        String sql = "WITH used AS (" +
+                "UPDATE refresh_tokens SET used_at = CURRENT_TIMESTAMP " +
+                "WHERE token_hash = ? AND used_at IS NULL AND expires_at > CURRENT_TIMESTAMP " +
+                "RETURNING family_id, user_type, user_id), " +
+                "principal AS (" +
+                "SELECT used.family_id, c.user_type, c.user_id, c.email, c.role FROM used " +
+                "JOIN user_credentials c ON c.user_type = used.user_type AND c.user_id = used.user_id), " +
+                "issued AS (" +
+                "INSERT INTO refresh_tokens (token_hash, family_id, user_type, user_id, expires_at) " +
+                "SELECT ?, family_id, user_type, user_id, ? FROM principal) " +
+                "SELECT user_type, user_id, email, role FROM principal";
+        try {
+            return QueryRunner.PRIMARY.updateReturning(sql, REFRESH_PRINCIPAL, 1, tokenHash, newTokenHash, newExpiresAt).stream().findFirst();
+        } catch (SQLException e) {
+            logger.error("Error rotating refresh token: {}", e.getMessage(), e);
+            throw new RuntimeException("Could not refresh session: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Если токен уже был использован, удаляет все его семейство (повторное предъявление - признак кражи).
+     * @return true, если семейство было удалено.
+     */
+    public boolean deleteFamilyIfReused(String tokenHash) {
+        String sql = "DELETE FROM refresh_tokens WHERE family_id = " +
+                "(SELECT family_id FROM refresh_tokens WHERE token_hash = ? AND used_at IS NOT NULL)";
+        try {
+            return QueryRunner.PRIMARY.update(sql, tokenHash) > 0;
+        } catch (SQLException e) {
+            logger.error("Error revoking reused refresh token family: {}", e.getMessage(), e);
+            return false;
+        }
+    }
+
+    // Выход: удаляет семейство предъявленного токена, все выданные по нему токены становятся недействительны
+    public void deleteFamily(String tokenHash) {
+        String sql = "DELETE FROM refresh_tokens WHERE family_id = (SELECT family_id FROM refresh_tokens WHERE token_hash = ?)";
+        try {
+            QueryRunner.PRIMARY.update(sql, tokenHash);
+        } catch (SQLException e) {
+            logger.error("Error deleting refresh token family: {}", e.getMessage(), e);
+            throw new RuntimeException("Could not revoke refresh token: " + e.getMessage(), e);
+        }
+    }
+
+    public int deleteExpired() {
+        String sql = "DELETE FROM refresh_tokens WHERE expires_at <= CURRENT_TIMESTAMP";
+        try {
+            return QueryRunner.PRIMARY.update(sql);
+        } catch (SQLException e) {
+            logger.error("Error deleting expired refresh tokens: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package org.example.education.dao;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Хранилище отозванных JWT (таблица revoked_tokens). Сервис держит действующие записи в памяти,
+ * а таблица нужна, чтобы отзыв пережил перезапуск и был виден другим экземплярам сервера.
+ */
+public class RevokedTokenDao {
+    private static final Logger logger = LoggerFactory.getLogger(RevokedTokenDao.class);
+
+    public static class RevokedToken {
+        public final String tokenId;
+        public final LocalDateTime expiresAt;
+        public final LocalDateTime revokedAt;
+
+        public RevokedToken(String tokenId, LocalDateTime expiresAt, LocalDateTime revokedAt) {
+            this.tokenId = tokenId;
+            this.expiresAt = expiresAt;
+            this.revokedAt = revokedAt;
+        }
+    }
+
+    private static final RowMapper<RevokedToken> REVOKED_TOKEN = rs -> new RevokedToken(
+            rs.getString(1), rs.getObject(2, LocalDateTime.class), rs.getObject(3, LocalDateTime.class));
+
+    /**
+     * Записывает отзыв. Повторный отзыв того же токена не ошибка.
+     * @throws RuntimeException если запись не удалась: выход не должен молча оставлять токен действующим.
+     */
+    public void revoke(String tokenId, LocalDateTime expiresAt) {
+        String sql = "INSERT INTO revoked_tokens (token_id, expires_at) VALUES (?, ?) ON CONFLICT (token_id) DO NOTHING";
+        try {
+            QueryRunner.PRIMARY.update(sql, tokenId, expiresAt);
+        } catch (SQLException e) {
+            logger.error("Error revoking token {}: {}", tokenId, e.getMessage(), e);
+            throw new RuntimeException("Could not revoke token: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Действующие (не истекшие) отзывы, записанные после revokedAfter; null - все действующие.
+     * Читается с основной БД: отставание реплики продлило бы жизнь отозванного токена.
+     */
+    public List<RevokedToken> findActiveRevokedAfter(LocalDateTime revokedAfter) {
+        String sql = "SELECT token_id, expires_at, revoked_at FROM revoked_tokens " +
+                "WHERE expires_at > CURRENT_TIMESTAMP AND (?::timestamp IS NULL OR revoked_at > ?) ORDER BY revoked_at";
+        try {
+            return QueryRunner.PRIMARY_READ.queryList(sql, REVOKED_TOKEN, 0, revokedAfter, revokedAfter);
+        } catch (SQLException e) {
+            logger.error("Error loading revoked tokens: {}", e.getMessage(), e);
+            throw new RuntimeException("Could not load revoked tokens: " + e.getMessage(), e);
+        }
+    }
+
+    // Удаляет истекшие отзывы: такие токены отклоняются проверкой срока действия
+    public int deleteExpired() {
+        String sql = "DELETE FROM revoked_tokens WHERE expires_at <= CURRENT_TIMESTAMP";
+        try {
+            return QueryRunner.PRIMARY.update(sql);
+        } catch (SQLException e) {
+            logger.error("Error deleting expired revoked tokens: {}", e.getMessage(), e);
+            return 0;
+        }
+    }
+}
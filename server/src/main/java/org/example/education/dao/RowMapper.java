@@ -0,0 +1,13 @@
+package org.example.education.dao;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Преобразует текущую строку ResultSet в объект. Реализации читают колонки по номеру,
+ * поэтому порядок колонок в SELECT должен совпадать с описанным у маппера (см. RowMappers).
+ */
+@FunctionalInterface
+interface RowMapper<T> {
+    T map(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,56 @@
+package org.example.education.dao;
+
+import org.example.education.model.*;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Мапперы строк для всех DAO. Колонки читаются по номеру, а не по имени: pgjdbc ищет имя
+ * без учета регистра для каждого поля каждой строки, что заметно на больших выборках.
+ * Каждому мапперу соответствует список колонок *_COLUMNS в том же порядке; для запросов с JOIN
+ * методы read*(rs, first) читают сущность, начиная с колонки first.
+ */
+final class RowMappers {
+    static final String STUDENT_COLUMNS = "student_id, first_name, last_name, email, group_name";
+    static final String COURSE_COLUMNS = "course_id, course_name, description";
+    static final String GRADE_COLUMNS = "grade_id, student_course_id, grade_value, grade_date, comments";
+    static final String STUDENT_COURSE_COLUMNS = "student_course_id, student_id, course_id, enrollment_date";
+    static final String DOCUMENT_COLUMNS = "document_id, student_id, document_name, document_type, upload_date, file_path";
+    static final String EMPLOYEE_COLUMNS = "employee_id, first_name, last_name, email, role";
+
+    static final RowMapper<Student> STUDENT = rs -> readStudent(rs, 1);
+    static final RowMapper<Course> COURSE = rs -> readCourse(rs, 1);
+    static final RowMapper<Grade> GRADE = rs -> readGrade(rs, 1);
+    static final RowMapper<StudentCourse> STUDENT_COURSE = rs -> new StudentCourse(
+            rs.getInt(1), rs.getInt(2), rs.getInt(3), rs.getObject(4, LocalDate.class));
+    static final RowMapper<Document> DOCUMENT = rs -> new Document(
+            rs.getInt(1), rs.getInt(2), rs.getString(3), rs.getString(4),
+            rs.getObject(5, LocalDateTime.class), rs.getString(6));
+    static final RowMapper<Employee> EMPLOYEE = rs -> new Employee(
+            rs.getInt(1), rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5));
+    static final RowMapper<Integer> INT = rs -> rs.getInt(1);
+
+    private RowMappers() {}
+
+    static Student readStudent(ResultSet rs, int first) throws SQLException {
+        return new Student(rs.getInt(first), rs.getString(first + 1), rs.getString(first + 2),
+                rs.getString(first + 3), rs.getString(first + 4));
+    }
+
+    static Course readCourse(ResultSet rs, int first) throws SQLException {
+        return new Course(rs.getInt(first), rs.getString(first + 1), rs.getString(first + 2));
+    }
+
+    static Grade readGrade(ResultSet rs, int first) throws SQLException {
+        return new Grade(rs.getInt(first), rs.getInt(first + 1), rs.getString(first + 2),
+                rs.getObject(first + 3, LocalDate.class), rs.getString(first + 4));
+    }
+
+    // Префиксует каждую колонку списка псевдонимом таблицы: ("s", "a, b") -> "s.a, s.b"
+    static String qualified(String alias, String columns) {
+        return alias + "." + columns.replace(", ", ", " + alias + ".");
+    }
+}
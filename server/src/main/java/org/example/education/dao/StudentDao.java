@@ -1,27 +1,54 @@
 package org.example.education.dao;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.example.education.config.ServerConfig;
+import org.example.education.model.Grade;
 import org.example.education.model.Student;
+import org.example.education.model.Transcript;
 import org.example.education.util.PasswordUtil; // Не используется здесь напрямую, но полезно помнить о нем для контекста
+import org.example.education.util.PasswordHashingPool;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class StudentDao {
     private static final Logger logger = LoggerFactory.getLogger(StudentDao.class);
+    // Сколько строк драйвер забирает с серверного курсора за один round trip при потоковом чтении
+    private static final int STREAM_FETCH_SIZE = 500;
+
+    // Кэш findById: ограничен по размеру, вытеснение W-TinyLFU (редко запрашиваемые студенты не вытесняют частых).
+    // Сбрасывается при update/delete; TTL ограничивает устаревание, если студент был прочитан с отстающей реплики.
+    private final Cache<Integer, Student> studentCache = Caffeine.newBuilder()
+            .maximumSize(ServerConfig.getStudentCacheMaxSize())
+            .expireAfterWrite(Duration.ofSeconds(ServerConfig.getStudentCacheTtlSeconds()))
+            .recordStats()
+            .build();
+
+    // Студент (колонки 1-5) и хеш пароля (колонка 6)
+    private static final RowMapper<StudentWithPasswordHash> STUDENT_WITH_HASH =
+            rs -> new StudentWithPasswordHash(RowMappers.STUDENT.map(rs), rs.getString(6));
 
     public Optional<Student> findByEmail(String email) {
-        String sql = "SELECT student_id, first_name, last_name, email, group_name FROM students WHERE email = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRowToStudent(rs));
-            }
+        String sql = "SELECT " + RowMappers.STUDENT_COLUMNS + " FROM students WHERE email = ?";
+        try {
+            return QueryRunner.READ.queryOne(sql, RowMappers.STUDENT, email);
         } catch (SQLException e) {
             logger.error("Error finding student by email: {}", email, e);
         }
@@ -29,16 +56,9 @@ public class StudentDao {
     }
 
     public Optional<StudentWithPasswordHash> findByEmailForAuth(String email) {
-        String sql = "SELECT student_id, first_name, last_name, email, group_name, password_hash FROM students WHERE email = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, email);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                Student student = mapRowToStudent(rs);
-                String passwordHash = rs.getString("password_hash");
-                return Optional.of(new StudentWithPasswordHash(student, passwordHash));
-            }
+        String sql = "SELECT " + RowMappers.STUDENT_COLUMNS + ", password_hash FROM students WHERE email = ?";
+        try {
+            return QueryRunner.PRIMARY_READ.queryOne(sql, STUDENT_WITH_HASH, email);
         } catch (SQLException e) {
             logger.error("Error finding student by email for auth: {}", email, e);
         }
@@ -46,14 +66,18 @@ public class StudentDao {
     }
 
     public Optional<Student> findById(int id) {
-        String sql = "SELECT student_id, first_name, last_name, email, group_name FROM students WHERE student_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            ResultSet rs = pstmt.executeQuery();
-            if (rs.next()) {
-                return Optional.of(mapRowToStudent(rs));
-            }
+        // Отсутствующие студенты и ошибки БД не кэшируются (загрузчик возвращает null)
+        Student cached = studentCache.get(id, key -> loadById(key).orElse(null));
+        return Optional.ofNullable(cached).map(StudentDao::copyOf);
+    }
+
+    // Кэш общий для всех запросов, поэтому заполняется с основной БД: отстающая реплика закэшировала бы
+    // старую версию студента на все время жизни записи, уже после инвалидации при записи.
+    // Это чтение, поэтому пользователь не закрепляется за основной БД (PRIMARY_READ)
+    private Optional<Student> loadById(int id) {
+        String sql = "SELECT " + RowMappers.STUDENT_COLUMNS + " FROM students WHERE student_id = ?";
+        try {
+            return QueryRunner.PRIMARY_READ.queryOne(sql, RowMappers.STUDENT, id);
         } catch (SQLException e) {
             logger.error("Error finding student by ID: {}", id, e);
         }
@@ -61,20 +85,189 @@ public class StudentDao {
     }
 
     public List<Student> findAll() {
-        List<Student> students = new ArrayList<>();
-        String sql = "SELECT student_id, first_name, last_name, email, group_name FROM students ORDER BY last_name, first_name";
-        try (Connection conn = DatabaseManager.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
-            while (rs.next()) {
-                students.add(mapRowToStudent(rs));
-            }
+        String sql = "SELECT " + RowMappers.STUDENT_COLUMNS + " FROM students ORDER BY last_name, first_name";
+        try {
+            // Без предварительного размера: лишний запрос к pg_class дороже нескольких расширений списка
+            return QueryRunner.READ.queryList(sql, RowMappers.STUDENT, 0);
         } catch (SQLException e) {
             logger.error("Error finding all students", e);
         }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Возвращает страницу студентов в порядке (last_name, first_name, student_id), начиная строго после курсора.
+     * Keyset-пагинация не использует OFFSET, поэтому стоимость запроса не растет с номером страницы.
+     * @param after курсор последней строки предыдущей страницы или null для первой страницы.
+     * @param limit максимальное число строк на странице.
+     */
+    public List<Student> findPage(PageCursor after, int limit) {
+        String sql = "SELECT " + RowMappers.STUDENT_COLUMNS + " FROM students " +
+                (after != null ? "WHERE (last_name, first_name, student_id) > (?, ?, ?) " : "") +
+                "ORDER BY last_name, first_name, student_id LIMIT ?";
+        Object[] params = after != null
+                ? new Object[]{after.lastName, after.firstName, after.studentId, limit}
+                : new Object[]{limit};
+        try {
+            return QueryRunner.READ.queryList(sql, RowMappers.STUDENT, limit, params);
+        } catch (SQLException e) {
+            logger.error("Error finding students page after {}: {}", after, e.getMessage(), e);
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Читает всех студентов через серверный курсор и передает каждую строку в consumer,
+     * не накапливая результат в памяти. pgjdbc использует курсор только при выключенном autocommit
+     * и заданном fetchSize, иначе весь ResultSet материализуется на клиенте.
+     * @return количество переданных строк.
+     */
+    public long streamAll(Consumer<Student> consumer) {
+        String sql = "SELECT " + RowMappers.STUDENT_COLUMNS + " FROM students ORDER BY last_name, first_name, student_id";
+        long count = 0;
+        try (Connection conn = DatabaseManager.getReadConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                pstmt.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        consumer.accept(RowMappers.STUDENT.map(rs));
+                        count++;
+                    }
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback(); // Например, клиент разорвал соединение посреди выдачи
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.error("Error streaming all students after {} rows: {}", count, e.getMessage(), e);
+            throw new RuntimeException("Could not stream students: " + e.getMessage(), e);
+        }
+        return count;
+    }
+
+    /**
+     * Поиск студентов по имени, фамилии, email и группе с ранжированием по триграммному сходству.
+     * Сначала ищется подстрока (ILIKE '%...%'); если совпадений нет, выполняется нечеткий поиск
+     * по имени и фамилии (оператор % из pg_trgm, находит опечатки). Оба варианта используют
+     * GIN-индексы *_trgm. Нечеткий поиск не объединяется с подстрочным через OR, так как похожих
+     * строк обычно много больше, чем точных совпадений, и ранжировать их все слишком дорого.
+     * @param query строка поиска или null (тогда нужны фильтры и результаты упорядочены по фамилии).
+     * @param groupName точное имя группы или null.
+     * @param courseId ID курса, на который записан студент, или null.
+     * @param limit максимальное число результатов.
+     */
+    public List<Student> search(String query, String groupName, Integer courseId, int limit) {
+        List<Student> students = search(query, groupName, courseId, limit, false);
+        if (students.isEmpty() && query != null) {
+            students = search(query, groupName, courseId, limit, true);
+        }
         return students;
     }
 
+    private List<Student> search(String query, String groupName, Integer courseId, int limit, boolean fuzzy) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(RowMappers.qualified("s", RowMappers.STUDENT_COLUMNS));
+        List<Object> params = new ArrayList<>();
+        if (query != null) {
+            sql.append(", GREATEST(similarity(s.last_name, ?), similarity(s.first_name, ?), similarity(s.email, ?), " +
+                    "similarity(COALESCE(s.group_name, ''), ?)) AS score");
+            for (int i = 0; i < 4; i++) {
+                params.add(query);
+            }
+        }
+        sql.append(" FROM students s WHERE TRUE");
+        if (query != null && fuzzy) {
+            sql.append(" AND (s.last_name % ? OR s.first_name % ?)");
+            params.add(query);
+            params.add(query);
+        } else if (query != null) {
+            String pattern = "%" + escapeLike(query) + "%";
+            sql.append(" AND (s.last_name ILIKE ? OR s.first_name ILIKE ? OR s.email ILIKE ? OR s.group_name ILIKE ?)");
+            for (int i = 0; i < 4; i++) {
+                params.add(pattern);
+            }
+        }
+        if (groupName != null) {
+            sql.append(" AND s.group_name = ?");
+            params.add(groupName);
+        }
+        if (courseId != null) {
+            sql.append(" AND EXISTS (SELECT 1 FROM student_courses sc WHERE sc.student_id = s.student_id AND sc.course_id = ?)");
+            params.add(courseId);
+        }
+        sql.append(query != null ? " ORDER BY score DESC, " : " ORDER BY ");
+        sql.append("s.last_name, s.first_name, s.student_id LIMIT ?");
+        params.add(limit);
+
+        try {
+            return QueryRunner.READ.queryList(sql.toString(), RowMappers.STUDENT, limit, params.toArray());
+        } catch (SQLException e) {
+            logger.error("Error searching students (query '{}', group {}, course {}): {}", query, groupName, courseId, e.getMessage(), e);
+            throw new RuntimeException("Could not search students: " + e.getMessage(), e);
+        }
+    }
+
+    // Экранирует спецсимволы LIKE, чтобы строка поиска искалась буквально
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    public long estimateCount() {
+        return DatabaseManager.estimateRowCount("students");
+    }
+
+    /**
+     * Выписка студента одним запросом: студент, GPA из сводки, записи на курсы, курсы и оценки
+     * (одна строка результата на оценку, записи без оценок дают строку с NULL в полях оценки).
+     * @return выписка или пустой Optional, если студента нет.
+     */
+    public Optional<Transcript> findTranscript(int studentId) {
+        // Колонки: 1-5 студент, 6 gpa, 7-8 запись на курс, 9-11 курс, 12-15 оценка
+        String sql = "SELECT " + RowMappers.qualified("s", RowMappers.STUDENT_COLUMNS) + ", gs.gpa, " +
+                "sc.student_course_id, sc.enrollment_date, " + RowMappers.qualified("c", RowMappers.COURSE_COLUMNS) + ", " +
+                "g.grade_id, g.grade_value, g.grade_date, g.comments " +
+                "FROM students s " +
+                "LEFT JOIN student_grade_summary gs ON gs.student_id = s.student_id " +
+                "LEFT JOIN student_courses sc ON sc.student_id = s.student_id " +
+                "LEFT JOIN courses c ON c.course_id = sc.course_id " +
+                "LEFT JOIN grades g ON g.student_course_id = sc.student_course_id " +
+                "WHERE s.student_id = ? " +
+                "ORDER BY sc.enrollment_date, sc.student_course_id, g.grade_date, g.grade_id";
+        try (Connection conn = DatabaseManager.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, studentId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                Transcript transcript = null;
+                Transcript.Entry entry = null;
+                while (rs.next()) {
+                    if (transcript == null) {
+                        transcript = new Transcript(RowMappers.STUDENT.map(rs), rs.getBigDecimal(6));
+                    }
+                    int studentCourseId = rs.getInt(7);
+                    if (rs.wasNull()) {
+                        continue; // Студент без записей на курсы
+                    }
+                    if (entry == null || entry.getStudentCourseId() != studentCourseId) {
+                        entry = new Transcript.Entry(studentCourseId, rs.getObject(8, LocalDate.class), RowMappers.readCourse(rs, 9));
+                        transcript.getEnrollments().add(entry);
+                    }
+                    int gradeId = rs.getInt(12);
+                    if (!rs.wasNull()) {
+                        entry.getGrades().add(new Grade(gradeId, studentCourseId, rs.getString(13),
+                                rs.getObject(14, LocalDate.class), rs.getString(15)));
+                    }
+                }
+                return Optional.ofNullable(transcript);
+            }
+        } catch (SQLException e) {
+            logger.error("Error building transcript for student ID {}: {}", studentId, e.getMessage(), e);
+            throw new RuntimeException("Could not build transcript: " + e.getMessage(), e);
+        }
+    }
+
     public Student save(Student student, String rawPassword) {
         if (rawPassword == null || rawPassword.isBlank()) {
             logger.error("Attempted to save student {} with an empty password.", student.getEmail());
@@ -108,30 +301,15 @@ public class StudentDao {
         // А studentDao.save(student, rawPassword) внутри хеширует. Это нормально.
         // Сохраним текущую логику, где DAO хеширует при СОЗДАНИИ.
 
-        String hashedPassword = PasswordUtil.hashPassword(rawPassword); // Хешируем здесь при создании
+        String hashedPassword = PasswordHashingPool.hashPassword(rawPassword); // Хешируем здесь при создании, BCrypt - в отдельном пуле
 
         String sql = "INSERT INTO students (first_name, last_name, email, group_name, password_hash) VALUES (?, ?, ?, ?, ?) RETURNING student_id";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, student.getFirstName());
-            pstmt.setString(2, student.getLastName());
-            pstmt.setString(3, student.getEmail());
-            pstmt.setString(4, student.getGroupName());
-            pstmt.setString(5, hashedPassword); // Сохраняем хешированный пароль
-
-            int affectedRows = pstmt.executeUpdate();
-            if (affectedRows == 0) {
-                throw new SQLException("Creating student failed, no rows affected.");
-            }
-
-            try (ResultSet generatedKeys = pstmt.getGeneratedKeys()) {
-                if (generatedKeys.next()) {
-                    student.setStudentId(generatedKeys.getInt(1));
-                    return student;
-                } else {
-                    throw new SQLException("Creating student failed, no ID obtained.");
-                }
-            }
+        try {
+            student.setStudentId(QueryRunner.PRIMARY.insertReturningId(sql, "Creating student failed",
+                    student.getFirstName(), student.getLastName(), student.getEmail(), student.getGroupName(),
+                    hashedPassword)); // Сохраняем хешированный пароль
+            CredentialDao.forgetUnknownEmail(student.getEmail());
+            return student;
         } catch (SQLException e) {
             // Проверка на уникальность email (код SQLState для PostgreSQL - 23505)
             if ("23505".equals(e.getSQLState())) {
@@ -143,6 +321,71 @@ public class StudentDao {
         }
     }
 
+    /**
+     * Массово вставляет студентов с уже захешированными паролями через COPY во временную таблицу
+     * и один INSERT ... SELECT ... ON CONFLICT (email) DO NOTHING. Дубликаты email (случай 23505)
+     * не прерывают загрузку, а просто не попадают в результат.
+     * @param rows студенты вместе с хешами паролей.
+     * @return email -> присвоенный student_id для реально вставленных строк.
+     */
+    public Map<String, Integer> copyInsertIgnoringDuplicates(List<StudentWithPasswordHash> rows) {
+        Map<String, Integer> createdIds = new HashMap<>(rows.size() * 2);
+        DatabaseManager.markWrite();
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.execute("CREATE TEMP TABLE students_import (first_name VARCHAR(100), last_name VARCHAR(100), " +
+                        "email VARCHAR(255), group_name VARCHAR(50), password_hash VARCHAR(255)) ON COMMIT DROP");
+
+                CopyManager copyManager = conn.unwrap(PGConnection.class).getCopyAPI();
+                long copied = copyManager.copyIn(
+                        "COPY students_import (first_name, last_name, email, group_name, password_hash) FROM STDIN WITH (FORMAT csv)",
+                        new StringReader(toCopyCsv(rows)));
+
+                try (ResultSet rs = stmt.executeQuery(
+                        "INSERT INTO students (first_name, last_name, email, group_name, password_hash) " +
+                        "SELECT first_name, last_name, email, group_name, password_hash FROM students_import " +
+                        "ON CONFLICT (email) DO NOTHING RETURNING student_id, email")) {
+                    while (rs.next()) {
+                        createdIds.put(rs.getString(2), rs.getInt(1));
+                    }
+                }
+                conn.commit();
+                CredentialDao.forgetUnknownEmails(createdIds.keySet());
+                logger.info("Bulk import batch: {} rows copied, {} students inserted.", copied, createdIds.size());
+            } catch (SQLException | IOException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException | IOException e) {
+            logger.error("Error bulk importing {} students: {}", rows.size(), e.getMessage(), e);
+            throw new RuntimeException("Could not import students batch: " + e.getMessage(), e);
+        }
+        return createdIds;
+    }
+
+    // Формирует CSV для COPY: строки всегда в кавычках, null - пустое поле без кавычек (COPY читает его как NULL)
+    private static String toCopyCsv(List<StudentWithPasswordHash> rows) {
+        StringBuilder csv = new StringBuilder(rows.size() * 160);
+        for (StudentWithPasswordHash row : rows) {
+            appendCsvField(csv, row.student.getFirstName()).append(',');
+            appendCsvField(csv, row.student.getLastName()).append(',');
+            appendCsvField(csv, row.student.getEmail()).append(',');
+            appendCsvField(csv, row.student.getGroupName()).append(',');
+            appendCsvField(csv, row.passwordHash).append('\n');
+        }
+        return csv.toString();
+    }
+
+    private static StringBuilder appendCsvField(StringBuilder csv, String value) {
+        if (value == null) {
+            return csv;
+        }
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
     /**
      * Обновляет данные студента. Если newPasswordHash предоставлен (не null и не пустой),
      * пароль также будет обновлен.
@@ -175,15 +418,10 @@ public class StudentDao {
         // Для безопасности, не логируем сами параметры, если там есть хеш пароля,
         // или логируем их выборочно, маскируя пароль.
 
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-
-            // Устанавливаем параметры в PreparedStatement
-            for (int i = 0; i < params.size(); i++) {
-                pstmt.setObject(i + 1, params.get(i));
-            }
-
-            int affectedRows = pstmt.executeUpdate();
+        try {
+            int affectedRows = QueryRunner.PRIMARY.update(sql, params.toArray());
+            studentCache.invalidate(student.getStudentId());
+            CredentialDao.forgetUnknownEmail(student.getEmail());
             if (affectedRows > 0) {
                 logger.info("Student ID {} updated successfully. Password updated: {}", student.getStudentId(), updatingPassword);
             } else {
@@ -205,10 +443,9 @@ public class StudentDao {
 
     public boolean delete(int id) {
         String sql = "DELETE FROM students WHERE student_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setInt(1, id);
-            int affectedRows = pstmt.executeUpdate();
+        try {
+            int affectedRows = QueryRunner.PRIMARY.update(sql, id);
+            studentCache.invalidate(id);
             if (affectedRows > 0) {
                 logger.info("Student ID {} deleted successfully.", id);
             } else {
@@ -221,14 +458,19 @@ public class StudentDao {
         }
     }
 
-    private Student mapRowToStudent(ResultSet rs) throws SQLException {
-        return new Student(
-                rs.getInt("student_id"),
-                rs.getString("first_name"),
-                rs.getString("last_name"),
-                rs.getString("email"),
-                rs.getString("group_name")
-        );
+    // Статистика кэша findById (попадания, промахи, вытеснения) для подбора cache.students.max.size
+    public CacheStats getCacheStats() {
+        return studentCache.stats();
+    }
+
+    public long getCacheSize() {
+        return studentCache.estimatedSize();
+    }
+
+    private static Student copyOf(Student student) {
+        // Вызывающий код может менять возвращенный объект, поэтому из кэша отдается копия
+        return new Student(student.getStudentId(), student.getFirstName(), student.getLastName(),
+                student.getEmail(), student.getGroupName());
     }
 
     // Вспомогательный класс для передачи студента вместе с хешем пароля внутри DAO/Service
@@ -242,4 +484,49 @@ public class StudentDao {
             this.passwordHash = passwordHash;
         }
     }
-}
\ No newline at end of file
+
+    // Курсор keyset-пагинации: ключ сортировки последней выданной строки.
+    // Для клиента непрозрачная строка base64url (без '%', ',' и '+'), поэтому ее можно передать в ?after= без экранирования.
+    // Внутри - "last_name\0first_name\0id": символ NUL не может встретиться в тексте PostgreSQL.
+    public static class PageCursor {
+        private static final char SEPARATOR = '\0';
+
+        public final String lastName;
+        public final String firstName;
+        public final int studentId;
+
+        public PageCursor(String lastName, String firstName, int studentId) {
+            this.lastName = lastName;
+            this.firstName = firstName;
+            this.studentId = studentId;
+        }
+
+        public static PageCursor of(Student student) {
+            return new PageCursor(student.getLastName(), student.getFirstName(), student.getStudentId());
+        }
+
+        public static PageCursor parse(String value) {
+            String decoded;
+            try {
+                decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid cursor: use the nextCursor value from the previous page.");
+            }
+            String[] parts = decoded.split(String.valueOf(SEPARATOR), -1);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor: use the nextCursor value from the previous page.");
+            }
+            try {
+                return new PageCursor(parts[0], parts[1], Integer.parseInt(parts[2]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid cursor: use the nextCursor value from the previous page.");
+            }
+        }
+
+        @Override
+        public String toString() {
+            String key = lastName + SEPARATOR + firstName + SEPARATOR + studentId;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(key.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+}
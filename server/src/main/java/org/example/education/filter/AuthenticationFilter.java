@@ -1,9 +1,10 @@
 package org.example.education.filter;
 
+import org.example.education.dao.DatabaseManager;
 import org.example.education.model.UserType; // Убедитесь, что этот импорт есть
+import org.example.education.service.TokenRevocationService;
 import org.example.education.util.JsonUtil;
 import org.example.education.util.JwtUtil;
-import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import spark.Filter;
@@ -19,9 +20,11 @@ public class AuthenticationFilter implements Filter {
     private static final Logger auditLogger = LoggerFactory.getLogger("AUDIT");
 
     private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
 
-    public AuthenticationFilter(JwtUtil jwtUtil) {
+    public AuthenticationFilter(JwtUtil jwtUtil, TokenRevocationService tokenRevocationService) {
         this.jwtUtil = jwtUtil;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -38,6 +41,9 @@ public class AuthenticationFilter implements Filter {
         boolean isPublicEndpoint = false;
         if (request.pathInfo().equals("/api/auth/login") && request.requestMethod().equalsIgnoreCase("POST")) {
             isPublicEndpoint = true;
+        } else if (request.pathInfo().equals("/api/auth/refresh") && request.requestMethod().equalsIgnoreCase("POST")) {
+            // Обновление сессии: access-токен к этому моменту обычно уже истек, проверяется refresh-токен из тела
+            isPublicEndpoint = true;
         } else if (request.pathInfo().equals("/api/students") && request.requestMethod().equalsIgnoreCase("POST")) {
             // Регистрация нового студента также публична
             isPublicEndpoint = true;
@@ -60,9 +66,10 @@ public class AuthenticationFilter implements Filter {
         }
 
         String token = authHeader.substring(7); // Удаляем "Bearer "
-        Optional<Claims> claimsOptional = jwtUtil.validateTokenAndGetClaims(token);
+        // Подпись проверяется при первом предъявлении токена, затем личность берется из кэша до истечения токена
+        Optional<JwtUtil.TokenIdentity> identityOptional = jwtUtil.authenticate(token);
 
-        if (claimsOptional.isEmpty()) {
+        if (identityOptional.isEmpty()) {
             logger.warn("Invalid or expired JWT token provided for {} {}", request.requestMethod(), request.pathInfo());
             String tokenSnippet = token.length() > 10 ? token.substring(0, 10) + "..." : token;
             auditLogger.warn("Unauthorized access attempt (invalid/expired JWT token) to {} {} from IP {}. Token: {}",
@@ -72,13 +79,21 @@ public class AuthenticationFilter implements Filter {
         }
 
         // 4. Токен валиден, извлекаем информацию о пользователе и добавляем в атрибуты запроса.
-        Claims claims = claimsOptional.get();
+        JwtUtil.TokenIdentity identity = identityOptional.get();
+
+        // Токен отозван при выходе. Проверка идет по фильтру Блума в памяти, к точному набору - только при его срабатывании
+        if (tokenRevocationService.isRevoked(identity.getTokenId())) {
+            auditLogger.warn("Unauthorized access attempt (revoked JWT token) by User ID: {} to {} {} from IP {}",
+                    identity.getUserId(), request.requestMethod(), request.pathInfo(), request.ip());
+            Spark.halt(401, JsonUtil.toJson(Collections.singletonMap("error", "Unauthorized: Token has been revoked")));
+            return;
+        }
         try {
-            request.attribute("userId", jwtUtil.getUserIdFromClaims(claims));
-            request.attribute("userEmail", jwtUtil.getEmailFromClaims(claims));
+            request.attribute("userId", identity.getUserId());
+            request.attribute("userEmail", identity.getEmail());
 
-            UserType userType = jwtUtil.getUserTypeFromClaims(claims);
-            String userRole = jwtUtil.getRoleFromClaims(claims);
+            UserType userType = identity.getUserType();
+            String userRole = identity.getRole();
 
             if (userType == null || userRole == null) {
                 logger.error("Critical: UserType or UserRole missing or invalid in a valid JWT for token: {}", token.substring(0,10)+"...");
@@ -90,6 +105,8 @@ public class AuthenticationFilter implements Filter {
 
             request.attribute("userType", userType);
             request.attribute("userRole", userRole);
+            // Для read-your-writes: чтения пользователя после его записи идут на основную БД, а не на реплику
+            DatabaseManager.bindRequestUser(userType + ":" + request.attribute("userId"));
 
             auditLogger.info("Authenticated access by User ID: {}, Email: {}, Type: {}, Role: {} to {} {} from IP {}",
                     request.attribute("userId"), request.attribute("userEmail"),
@@ -0,0 +1,33 @@
+package org.example.education.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Результат обработки одного элемента пакетного запроса (индекс соответствует позиции во входном массиве)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BatchItemResult<T> {
+    private final int index;
+    private final String status; // Например, "CREATED", "FAILED"
+    private final T item;
+    private final String error;
+
+    public BatchItemResult(int index, String status, T item, String error) {
+        this.index = index;
+        this.status = status;
+        this.item = item;
+        this.error = error;
+    }
+
+    public static <T> BatchItemResult<T> success(int index, String status, T item) {
+        return new BatchItemResult<>(index, status, item, null);
+    }
+
+    public static <T> BatchItemResult<T> failure(int index, String status, String error) {
+        return new BatchItemResult<>(index, status, null, error);
+    }
+
+    // Геттеры
+    public int getIndex() { return index; }
+    public String getStatus() { return status; }
+    public T getItem() { return item; }
+    public String getError() { return error; }
+}
@@ -0,0 +1,45 @@
+package org.example.education.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Сводка успеваемости студента из материализованной таблицы student_grade_summary
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class GradeSummary {
+    private int studentId;
+    private String firstName;
+    private String lastName;
+    private String groupName;
+    private int courseCount;        // Курсы, по которым есть хотя бы одна оценка
+    private int gradeCount;
+    private int numericGradeCount;  // Оценки, участвующие в GPA (нечисловые, например "зачет", не учитываются)
+    private BigDecimal gpa;         // null, если числовых оценок нет
+    private Integer rank;           // Место в группе, заполняется только в сводке по группе
+    private LocalDateTime updatedAt;
+
+    public GradeSummary() {}
+
+    // Геттеры и сеттеры
+    public int getStudentId() { return studentId; }
+    public void setStudentId(int studentId) { this.studentId = studentId; }
+    public String getFirstName() { return firstName; }
+    public void setFirstName(String firstName) { this.firstName = firstName; }
+    public String getLastName() { return lastName; }
+    public void setLastName(String lastName) { this.lastName = lastName; }
+    public String getGroupName() { return groupName; }
+    public void setGroupName(String groupName) { this.groupName = groupName; }
+    public int getCourseCount() { return courseCount; }
+    public void setCourseCount(int courseCount) { this.courseCount = courseCount; }
+    public int getGradeCount() { return gradeCount; }
+    public void setGradeCount(int gradeCount) { this.gradeCount = gradeCount; }
+    public int getNumericGradeCount() { return numericGradeCount; }
+    public void setNumericGradeCount(int numericGradeCount) { this.numericGradeCount = numericGradeCount; }
+    public BigDecimal getGpa() { return gpa; }
+    public void setGpa(BigDecimal gpa) { this.gpa = gpa; }
+    public Integer getRank() { return rank; }
+    public void setRank(Integer rank) { this.rank = rank; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -0,0 +1,25 @@
+package org.example.education.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+// Сводка успеваемости группы: средний GPA и студенты в порядке рейтинга
+public class GroupGradeSummary {
+    private final String groupName;
+    private final int studentCount;
+    private final BigDecimal averageGpa; // Среднее по студентам с GPA, null если таких нет
+    private final List<GradeSummary> students;
+
+    public GroupGradeSummary(String groupName, int studentCount, BigDecimal averageGpa, List<GradeSummary> students) {
+        this.groupName = groupName;
+        this.studentCount = studentCount;
+        this.averageGpa = averageGpa;
+        this.students = students;
+    }
+
+    // Геттеры
+    public String getGroupName() { return groupName; }
+    public int getStudentCount() { return studentCount; }
+    public BigDecimal getAverageGpa() { return averageGpa; }
+    public List<GradeSummary> getStudents() { return students; }
+}
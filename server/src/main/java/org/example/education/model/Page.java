@@ -0,0 +1,21 @@
+package org.example.education.model;
+
+import java.util.List;
+
+// Страница результатов для keyset-пагинации списков
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;     // Значение для ?after= следующего запроса, null если страница последняя
+    private final Long approximateTotal; // Оценка по pg_class.reltuples, null если статистика еще не собрана
+
+    public Page(List<T> items, String nextCursor, Long approximateTotal) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.approximateTotal = approximateTotal;
+    }
+
+    // Геттеры
+    public List<T> getItems() { return items; }
+    public String getNextCursor() { return nextCursor; }
+    public Long getApproximateTotal() { return approximateTotal; }
+}
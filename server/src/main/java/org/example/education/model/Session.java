@@ -7,6 +7,8 @@ public class Session {
     private UserType userType; // STUDENT или EMPLOYEE
     private String role;       // Например, "ADMIN", "TEACHER", или "STUDENT_ROLE"
     private long expiresAt;
+    private String refreshToken; // Одноразовый токен для POST /api/auth/refresh
+    private long refreshExpiresAt;
 
     public Session(String token, int userId, String userEmail, UserType userType, String role, long expiresAt) {
         this.token = token;
@@ -17,6 +19,13 @@ public class Session {
         this.expiresAt = expiresAt;
     }
 
+    public Session(String token, int userId, String userEmail, UserType userType, String role, long expiresAt,
+                   String refreshToken, long refreshExpiresAt) {
+        this(token, userId, userEmail, userType, role, expiresAt);
+        this.refreshToken = refreshToken;
+        this.refreshExpiresAt = refreshExpiresAt;
+    }
+
     // Геттеры
     public String getToken() { return token; }
     public int getUserId() { return userId; }
@@ -24,4 +33,6 @@ public class Session {
     public UserType getUserType() { return userType; }
     public String getRole() { return role; }
     public long getExpiresAt() { return expiresAt; }
+    public String getRefreshToken() { return refreshToken; }
+    public long getRefreshExpiresAt() { return refreshExpiresAt; }
 }
\ No newline at end of file
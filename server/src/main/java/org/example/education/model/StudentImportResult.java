@@ -0,0 +1,40 @@
+package org.example.education.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Итог массового импорта студентов: счетчики и построчные ошибки
+public class StudentImportResult {
+    private int totalRows;
+    private int importedRows;
+    private final List<RowFailure> failures = new ArrayList<>();
+
+    public void countRow() { totalRows++; }
+    public void countImported() { importedRows++; }
+
+    public void addFailure(int line, String email, String error) {
+        failures.add(new RowFailure(line, email, error));
+    }
+
+    // Геттеры
+    public int getTotalRows() { return totalRows; }
+    public int getImportedRows() { return importedRows; }
+    public int getFailedRows() { return failures.size(); }
+    public List<RowFailure> getFailures() { return failures; }
+
+    public static class RowFailure {
+        private final int line;     // Номер строки во входных данных (с 1, включая заголовок CSV)
+        private final String email;
+        private final String error;
+
+        public RowFailure(int line, String email, String error) {
+            this.line = line;
+            this.email = email;
+            this.error = error;
+        }
+
+        public int getLine() { return line; }
+        public String getEmail() { return email; }
+        public String getError() { return error; }
+    }
+}
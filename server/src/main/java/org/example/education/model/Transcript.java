@@ -0,0 +1,45 @@
+package org.example.education.model;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+// Выписка студента: профиль, GPA и записи на курсы с курсом и оценками, собранные одним запросом
+public class Transcript {
+    private final Student student;
+    private final BigDecimal gpa; // Из student_grade_summary, null если числовых оценок нет
+    private final List<Entry> enrollments = new ArrayList<>();
+
+    public Transcript(Student student, BigDecimal gpa) {
+        this.student = student;
+        this.gpa = gpa;
+    }
+
+    // Геттеры
+    public Student getStudent() { return student; }
+    public BigDecimal getGpa() { return gpa; }
+    public List<Entry> getEnrollments() { return enrollments; }
+
+    // Запись на курс вместе с курсом и оценками по нему
+    public static class Entry {
+        private final int studentCourseId;
+        @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+        private final LocalDate enrollmentDate;
+        private final Course course;
+        private final List<Grade> grades = new ArrayList<>();
+
+        public Entry(int studentCourseId, LocalDate enrollmentDate, Course course) {
+            this.studentCourseId = studentCourseId;
+            this.enrollmentDate = enrollmentDate;
+            this.course = course;
+        }
+
+        public int getStudentCourseId() { return studentCourseId; }
+        public LocalDate getEnrollmentDate() { return enrollmentDate; }
+        public Course getCourse() { return course; }
+        public List<Grade> getGrades() { return grades; }
+    }
+}
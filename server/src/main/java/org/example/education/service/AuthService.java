@@ -1,29 +1,36 @@
 package org.example.education.service;
 
-import org.example.education.dao.EmployeeDao;
-import org.example.education.dao.StudentDao;
+import org.example.education.dao.CredentialDao;
+import org.example.education.dao.RefreshTokenDao;
 import org.example.education.model.Session;
 import org.example.education.model.UserCredentials;
 import org.example.education.model.UserType;
 import org.example.education.util.JwtUtil;
+import org.example.education.config.ServerConfig;
+import org.example.education.util.PasswordHashingPool;
 import org.example.education.util.PasswordUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class AuthService {
     private static final Logger logger = LoggerFactory.getLogger(AuthService.class);
     private static final Logger auditLogger = LoggerFactory.getLogger("AUDIT");
 
-    private final StudentDao studentDao;
-    private final EmployeeDao employeeDao;
+    private final CredentialDao credentialDao;
     private final JwtUtil jwtUtil;
+    private final TokenRevocationService tokenRevocationService;
+    private final RefreshTokenService refreshTokenService;
+    private final AtomicLong rehashedPasswords = new AtomicLong();
 
-    public AuthService(StudentDao studentDao, EmployeeDao employeeDao, JwtUtil jwtUtil) {
-        this.studentDao = studentDao;
-        this.employeeDao = employeeDao;
+    public AuthService(CredentialDao credentialDao, JwtUtil jwtUtil, TokenRevocationService tokenRevocationService,
+                       RefreshTokenService refreshTokenService) {
+        this.credentialDao = credentialDao;
         this.jwtUtil = jwtUtil;
+        this.tokenRevocationService = tokenRevocationService;
+        this.refreshTokenService = refreshTokenService;
     }
 
     public Optional<Session> login(UserCredentials credentials) {
@@ -40,95 +47,104 @@ public class AuthService {
         String providedEmail = credentials.getEmail().trim();
         String providedPassword = credentials.getPassword();
 
-        // 1. Ищем сотрудника (администратора/преподавателя)
-        logger.debug("Attempting to authenticate as EMPLOYEE for email: {}", providedEmail);
-        Optional<EmployeeDao.EmployeeWithPasswordHash> employeeOpt = employeeDao.findByEmailForAuth(providedEmail);
-
-        if (employeeOpt.isPresent()) {
-            EmployeeDao.EmployeeWithPasswordHash employeeData = employeeOpt.get();
-            logger.debug("Employee found in DB: {}. Role: {}. Stored password hash (first 10): {}",
-                    employeeData.employee.getEmail(),
-                    employeeData.employee.getRole(),
-                    employeeData.passwordHash.substring(0, Math.min(10, employeeData.passwordHash.length())) + "...");
-
-            boolean passwordMatch = PasswordUtil.checkPassword(providedPassword, employeeData.passwordHash);
-            logger.debug("Password check result for employee {}: {}", providedEmail, passwordMatch);
-
-            if (passwordMatch) {
-                String token = jwtUtil.generateToken(
-                        employeeData.employee.getEmployeeId(),
-                        employeeData.employee.getEmail(),
-                        UserType.EMPLOYEE,
-                        employeeData.employee.getRole()
-                );
-                long expiresAt = System.currentTimeMillis() + jwtUtil.getExpirationMillis();
-                Session session = new Session(
-                        token,
-                        employeeData.employee.getEmployeeId(),
-                        employeeData.employee.getEmail(),
-                        UserType.EMPLOYEE,
-                        employeeData.employee.getRole(),
-                        expiresAt
-                );
-                auditLogger.info("SUCCESSFUL LOGIN: Employee {} (Role: {}) logged in.", providedEmail, employeeData.employee.getRole());
-                logger.info("Employee {} ({}) logged in successfully.", providedEmail, employeeData.employee.getRole());
-                return Optional.of(session);
-            } else {
-                // Сотрудник найден, но пароль неверный. Не продолжаем поиск студента.
-                auditLogger.warn("FAILED LOGIN ATTEMPT: Invalid password for existing employee email: {}", providedEmail);
-                logger.warn("Invalid password for employee email: {}", providedEmail);
-                return Optional.empty();
-            }
+        // Один запрос к представлению user_credentials вместо поиска сначала среди сотрудников, затем среди студентов.
+        // При совпадении email у сотрудника и студента возвращается сотрудник, студент не проверяется.
+        Optional<CredentialDao.UserCredential> credentialOpt = credentialDao.findByEmailForAuth(providedEmail);
+        if (credentialOpt.isEmpty()) {
+            // Пользователь не найден ни как сотрудник, ни как студент
+            auditLogger.warn("FAILED LOGIN ATTEMPT: User not found with email: {}", providedEmail);
+            logger.warn("User (neither employee nor student) not found with email: {}", providedEmail);
+            return Optional.empty();
         }
-        logger.debug("Employee not found for email: {}. Attempting to authenticate as STUDENT.", providedEmail);
-
-        // 2. Ищем студента (только если сотрудник не был найден по этому email)
-        Optional<StudentDao.StudentWithPasswordHash> studentOpt = studentDao.findByEmailForAuth(providedEmail);
-        if (studentOpt.isPresent()) {
-            StudentDao.StudentWithPasswordHash studentData = studentOpt.get();
-            logger.debug("Student found in DB: {}. Stored password hash (first 10): {}",
-                    studentData.student.getEmail(),
-                    studentData.passwordHash.substring(0, Math.min(10, studentData.passwordHash.length())) + "...");
-
-            boolean passwordMatch = PasswordUtil.checkPassword(providedPassword, studentData.passwordHash);
-            logger.debug("Password check result for student {}: {}", providedEmail, passwordMatch);
-
-            if (passwordMatch) {
-                String token = jwtUtil.generateToken(
-                        studentData.student.getStudentId(),
-                        studentData.student.getEmail(),
-                        UserType.STUDENT,
-                        "STUDENT" // У студентов пока одна "роль"
-                );
-                long expiresAt = System.currentTimeMillis() + jwtUtil.getExpirationMillis();
-                Session session = new Session(
-                        token,
-                        studentData.student.getStudentId(),
-                        studentData.student.getEmail(),
-                        UserType.STUDENT,
-                        "STUDENT",
-                        expiresAt
-                );
+
+        CredentialDao.UserCredential credential = credentialOpt.get();
+        String userKind = credential.userType == UserType.EMPLOYEE ? "employee" : "student";
+        logger.debug("{} found in DB: {}. Role: {}. Stored password hash (first 10): {}",
+                credential.userType, credential.email, credential.role,
+                credential.passwordHash.substring(0, Math.min(10, credential.passwordHash.length())) + "...");
+
+        boolean passwordMatch = PasswordHashingPool.checkPassword(providedPassword, credential.passwordHash);
+        logger.debug("Password check result for {} {}: {}", userKind, providedEmail, passwordMatch);
+
+        if (passwordMatch) {
+            rehashIfNeeded(credential, providedPassword);
+            RefreshTokenService.IssuedToken refreshToken = refreshTokenService.issue(credential.userType, credential.userId);
+            Session session = createSession(credential.userId, credential.email, credential.userType, credential.role, refreshToken);
+            if (credential.userType == UserType.EMPLOYEE) {
+                auditLogger.info("SUCCESSFUL LOGIN: Employee {} (Role: {}) logged in.", providedEmail, credential.role);
+                logger.info("Employee {} ({}) logged in successfully.", providedEmail, credential.role);
+            } else {
                 auditLogger.info("SUCCESSFUL LOGIN: Student {} logged in.", providedEmail);
                 logger.info("Student {} logged in successfully.", providedEmail);
-                return Optional.of(session);
-            } else {
-                auditLogger.warn("FAILED LOGIN ATTEMPT: Invalid password for existing student email: {}", providedEmail);
-                logger.warn("Invalid password for student email: {}", providedEmail);
             }
-        } else {
-            // Пользователь не найден ни как сотрудник, ни как студент
-            auditLogger.warn("FAILED LOGIN ATTEMPT: User not found with email: {}", providedEmail);
-            logger.warn("User (neither employee nor student) not found with email: {}", providedEmail);
+            return Optional.of(session);
+        }
+
+        auditLogger.warn("FAILED LOGIN ATTEMPT: Invalid password for existing {} email: {}", userKind, providedEmail);
+        logger.warn("Invalid password for {} email: {}", userKind, providedEmail);
+        return Optional.empty();
+    }
+
+    /**
+     * Если хеш посчитан с устаревшей стоимостью BCrypt, пересчитывает его в фоне с текущей:
+     * пароль известен только в момент входа. Ответ на вход этого не ждет; при перегрузке пула
+     * перехеширование просто откладывается до следующего входа.
+     */
+    private void rehashIfNeeded(CredentialDao.UserCredential credential, String providedPassword) {
+        if (!PasswordUtil.needsRehash(credential.passwordHash, ServerConfig.getBcryptMaxCost())) {
+            return;
+        }
+        PasswordHashingPool.hashPasswordAsync(providedPassword).whenComplete((newHash, error) -> {
+            if (error != null) {
+                logger.debug("Password rehash for {} postponed: {}", credential.email, error.getMessage());
+                return;
+            }
+            if (credentialDao.updatePasswordHash(credential.userType, credential.userId, credential.passwordHash, newHash)) {
+                rehashedPasswords.incrementAndGet();
+                logger.info("Password hash of {} {} upgraded from cost {} to {}.", credential.userType, credential.email,
+                        PasswordUtil.getCost(credential.passwordHash), PasswordUtil.getCost(newHash));
+            }
+        });
+    }
+
+    // Число паролей, перехешированных с текущей стоимостью с момента запуска (консоль, команда 'bcrypt')
+    public long getRehashedPasswordCount() {
+        return rehashedPasswords.get();
+    }
+
+    /**
+     * Продлевает сессию по refresh-токену без проверки пароля: один запрос к БД, новый access-токен
+     * и следующий refresh-токен (предъявленный больше не действует). Email и роль берутся из БД, а не из старого токена.
+     */
+    public Optional<Session> refresh(String refreshToken) {
+        Optional<RefreshTokenService.Rotation> rotation = refreshTokenService.rotate(refreshToken);
+        if (rotation.isEmpty()) {
+            auditLogger.warn("FAILED SESSION REFRESH: invalid, expired or reused refresh token.");
+            return Optional.empty();
         }
+        RefreshTokenDao.RefreshPrincipal principal = rotation.get().getPrincipal();
+        auditLogger.info("SESSION REFRESHED: {} {} ({}).", principal.userType, principal.email, principal.role);
+        return Optional.of(createSession(principal.userId, principal.email, principal.userType, principal.role, rotation.get().getNext()));
+    }
 
-        return Optional.empty(); // Если нигде не совпало или пароль неверный для найденного пользователя
+    private Session createSession(int userId, String email, UserType userType, String role, RefreshTokenService.IssuedToken refreshToken) {
+        String token = jwtUtil.generateToken(userId, email, userType, role);
+        long expiresAt = System.currentTimeMillis() + jwtUtil.getExpirationMillis();
+        return new Session(token, userId, email, userType, role, expiresAt, refreshToken.getToken(), refreshToken.getExpiresAtMillis());
     }
 
-    public void logout(String token) {
+    public void logout(String token, String refreshToken) {
         String tokenSnippet = (token != null && token.length() > 10) ? token.substring(0,10) + "..." : token;
         auditLogger.info("Logout request processed for token (first 10 chars): {}", tokenSnippet);
-        logger.info("Logout request received. Client should clear token.");
-        // Для JWT на стороне сервера обычно ничего делать не нужно, кроме возможного добавления токена в черный список.
+        // Токен отзывается до своего истечения: AuthenticationFilter больше его не примет
+        Optional<JwtUtil.TokenIdentity> identity = jwtUtil.authenticate(token);
+        if (identity.isPresent()) {
+            tokenRevocationService.revoke(identity.get().getTokenId(), identity.get().getExpiresAtMillis());
+            logger.info("Logout: token of user {} revoked.", identity.get().getEmail());
+        } else {
+            logger.info("Logout request received without a valid token, nothing to revoke.");
+        }
+        // Вместе с refresh-токеном отзываются и все выданные взамен него
+        refreshTokenService.revoke(refreshToken);
     }
 }
\ No newline at end of file
@@ -1,19 +1,40 @@
 package org.example.education.service;
 
 import org.example.education.dao.CourseDao;
+import org.example.education.dao.EnrollmentDao;
+import org.example.education.dao.GradeSummaryDao;
 import org.example.education.model.Course;
+import org.example.education.util.JsonUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
+/**
+ * Каталог курсов меняется редко, поэтому чтения обслуживаются из неизменяемого снимка в памяти:
+ * курсы по ID и заранее сериализованный JSON (UTF-8) списка и каждого курса. Снимок загружается
+ * при первом чтении и атомарно заменяется после каждого создания, изменения или удаления курса.
+ * Изменения, сделанные в БД в обход этого сервиса (или другим экземпляром сервера), станут видны
+ * только после следующей перезагрузки снимка (см. reloadCatalog).
+ */
 public class CourseService {
     private static final Logger logger = LoggerFactory.getLogger(CourseService.class);
     private final CourseDao courseDao;
+    private final EnrollmentDao enrollmentDao;
+    private final GradeSummaryDao gradeSummaryDao; // Удаление курса каскадно удаляет записи и оценки, сводку нужно пересчитать
+    private volatile CatalogSnapshot snapshot; // null до первой загрузки
 
-    public CourseService(CourseDao courseDao) {
+    public CourseService(CourseDao courseDao, EnrollmentDao enrollmentDao, GradeSummaryDao gradeSummaryDao) {
         this.courseDao = courseDao;
+        this.enrollmentDao = enrollmentDao;
+        this.gradeSummaryDao = gradeSummaryDao;
     }
 
     public Course createCourse(Course course) {
@@ -22,17 +43,32 @@ public class CourseService {
             throw new IllegalArgumentException("Course name cannot be empty.");
         }
         logger.info("Attempting to create course: {}", course.getCourseName());
-        return courseDao.save(course);
+        Course created = courseDao.save(course);
+        refreshAfterWrite();
+        return created;
     }
 
     public Optional<Course> getCourseById(int courseId) {
         logger.debug("Fetching course by ID: {}", courseId);
-        return courseDao.findById(courseId);
+        Course course = catalog().coursesById.get(courseId);
+        return Optional.ofNullable(course).map(CourseService::copyOf);
     }
 
     public List<Course> getAllCourses() {
         logger.debug("Fetching all courses");
-        return courseDao.findAll();
+        List<Course> courses = new ArrayList<>();
+        catalog().coursesById.values().forEach(course -> courses.add(copyOf(course)));
+        return courses;
+    }
+
+    // Готовый JSON списка всех курсов, отдается без обращения к БД и без сериализации
+    public byte[] getAllCoursesJson() {
+        return catalog().listJson;
+    }
+
+    // Готовый JSON курса или пустой Optional, если курса нет
+    public Optional<byte[]> getCourseJsonById(int courseId) {
+        return Optional.ofNullable(catalog().courseJsonById.get(courseId));
     }
 
     public boolean updateCourse(int courseId, Course course) {
@@ -41,12 +77,92 @@ public class CourseService {
         }
         course.setCourseId(courseId); // Убедимся, что ID правильный
         logger.info("Attempting to update course ID: {}", courseId);
-        return courseDao.update(course);
+        boolean updated = courseDao.update(course);
+        if (updated) {
+            refreshAfterWrite();
+        }
+        return updated;
     }
 
     public boolean deleteCourse(int courseId) {
         logger.info("Attempting to delete course ID: {}", courseId);
         // Можно добавить проверку, например, можно ли удалять курс, если на нем есть студенты
-        return courseDao.delete(courseId);
+        // После каскадного удаления записей студентов курса уже не найти, поэтому они собираются заранее
+        Set<Integer> enrolledStudentIds = enrollmentDao.findStudentIdsByCourseId(courseId);
+        boolean deleted = courseDao.delete(courseId);
+        if (deleted) {
+            refreshAfterWrite();
+            refreshGradeSummaries(enrolledStudentIds);
+        }
+        return deleted;
+    }
+
+    // Ошибка пересчета не отменяет удаление курса: сводку студентов восстанавливает команда консоли gpa-rebuild
+    private void refreshGradeSummaries(Set<Integer> studentIds) {
+        try {
+            gradeSummaryDao.refreshForStudents(studentIds);
+        } catch (RuntimeException e) {
+            logger.error("Grade summary refresh failed for students {}: {}", studentIds, e.getMessage());
+        }
+    }
+
+    /**
+     * Перечитывает каталог из БД и атомарно подменяет снимок. Перезагрузки выполняются по одной,
+     * чтобы снимок, прочитанный раньше, не мог заменить более свежий.
+     */
+    public synchronized void reloadCatalog() {
+        snapshot = CatalogSnapshot.of(courseDao.findAll());
+        logger.info("Course catalog snapshot loaded: {} courses.", snapshot.coursesById.size());
+    }
+
+    private synchronized void refreshAfterWrite() {
+        try {
+            reloadCatalog();
+        } catch (RuntimeException e) {
+            // Запись уже выполнена; устаревший снимок сбрасываем, он перечитается при следующем чтении
+            logger.error("Failed to reload course catalog after write, snapshot invalidated: {}", e.getMessage(), e);
+            snapshot = null;
+        }
+    }
+
+    private CatalogSnapshot catalog() {
+        CatalogSnapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    reloadCatalog();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    private static Course copyOf(Course course) {
+        // Объекты снимка не отдаются наружу, чтобы вызывающий код не мог их изменить
+        return new Course(course.getCourseId(), course.getCourseName(), course.getDescription());
+    }
+
+    private static final class CatalogSnapshot {
+        final Map<Integer, Course> coursesById; // В порядке course_id
+        final byte[] listJson;
+        final Map<Integer, byte[]> courseJsonById;
+
+        private CatalogSnapshot(Map<Integer, Course> coursesById, byte[] listJson, Map<Integer, byte[]> courseJsonById) {
+            this.coursesById = coursesById;
+            this.listJson = listJson;
+            this.courseJsonById = courseJsonById;
+        }
+
+        static CatalogSnapshot of(List<Course> courses) {
+            Map<Integer, Course> byId = new LinkedHashMap<>();
+            Map<Integer, byte[]> jsonById = new HashMap<>();
+            for (Course course : courses) {
+                byId.put(course.getCourseId(), course);
+                jsonById.put(course.getCourseId(), JsonUtil.toJsonBytes(course));
+            }
+            return new CatalogSnapshot(Collections.unmodifiableMap(byId), JsonUtil.toJsonBytes(courses),
+                    Collections.unmodifiableMap(jsonById));
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,51 +1,166 @@
 package org.example.education.service;
 
-import org.example.education.dao.CourseDao;
 import org.example.education.dao.EnrollmentDao;
-import org.example.education.dao.StudentDao;
+import org.example.education.dao.GradeSummaryDao;
+import org.example.education.model.BatchItemResult;
+import org.example.education.model.Page;
 import org.example.education.model.StudentCourse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
 
 public class EnrollmentService {
     private static final Logger logger = LoggerFactory.getLogger(EnrollmentService.class);
     private final EnrollmentDao enrollmentDao;
-    private final StudentDao studentDao; // Для проверки существования студента
-    private final CourseDao courseDao;   // Для проверки существования курса
+    private final GradeSummaryDao gradeSummaryDao; // Отписка каскадно удаляет оценки, сводку нужно пересчитать
 
-    public EnrollmentService(EnrollmentDao enrollmentDao, StudentDao studentDao, CourseDao courseDao) {
+    public EnrollmentService(EnrollmentDao enrollmentDao, GradeSummaryDao gradeSummaryDao) {
         this.enrollmentDao = enrollmentDao;
-        this.studentDao = studentDao;
-        this.courseDao = courseDao;
+        this.gradeSummaryDao = gradeSummaryDao;
     }
 
+    /**
+     * Записывает студента на курс одним INSERT без предварительных проверок: отсутствие студента
+     * или курса (нарушение внешнего ключа) дает IllegalArgumentException "Student not found." /
+     * "Course not found.", повторная запись - RuntimeException "already enrolled".
+     */
     public StudentCourse enrollStudent(int studentId, int courseId) {
-        // Проверяем, существуют ли студент и курс
-        if (studentDao.findById(studentId).isEmpty()) {
-            logger.warn("Enrollment attempt failed: Student with ID {} not found.", studentId);
-            throw new IllegalArgumentException("Student not found.");
+        logger.info("Attempting to enroll student {} in course {}", studentId, courseId);
+        return enrollmentDao.enrollStudent(studentId, courseId, LocalDate.now());
+    }
+
+    /**
+     * Массовая запись: все пары обрабатываются одним SQL-оператором.
+     * Статусы: CREATED, ALREADY_ENROLLED, STUDENT_NOT_FOUND, COURSE_NOT_FOUND, INVALID.
+     * @param pairs пары (studentId, courseId) в виде StudentCourse.
+     * @return результат для каждой входной пары в исходном порядке.
+     */
+    public List<BatchItemResult<StudentCourse>> enrollStudents(List<StudentCourse> pairs) {
+        List<Integer> studentIds = new ArrayList<>(pairs.size());
+        List<Integer> courseIds = new ArrayList<>(pairs.size());
+        for (StudentCourse pair : pairs) {
+            if (isValidPair(pair)) {
+                studentIds.add(pair.getStudentId());
+                courseIds.add(pair.getCourseId());
+            }
         }
-        if (courseDao.findById(courseId).isEmpty()) {
-            logger.warn("Enrollment attempt failed: Course with ID {} not found.", courseId);
-            throw new IllegalArgumentException("Course not found.");
+
+        Map<Long, EnrollmentDao.BulkEnrollmentRow> outcomes = new HashMap<>();
+        if (!studentIds.isEmpty()) {
+            logger.info("Attempting to bulk enroll {} pairs.", studentIds.size());
+            for (EnrollmentDao.BulkEnrollmentRow row : enrollmentDao.enrollStudents(studentIds, courseIds)) {
+                outcomes.put(pairKey(row.studentId, row.courseId), row);
+            }
         }
 
-        logger.info("Attempting to enroll student {} in course {}", studentId, courseId);
-        return enrollmentDao.enrollStudent(studentId, courseId, LocalDate.now());
+        List<BatchItemResult<StudentCourse>> results = new ArrayList<>(pairs.size());
+        Map<Long, Boolean> reported = new HashMap<>(); // Повтор пары во входе уже не "создан"
+        for (int i = 0; i < pairs.size(); i++) {
+            StudentCourse pair = pairs.get(i);
+            if (!isValidPair(pair)) {
+                results.add(BatchItemResult.failure(i, "INVALID", "studentId and courseId are required."));
+                continue;
+            }
+            long key = pairKey(pair.getStudentId(), pair.getCourseId());
+            EnrollmentDao.BulkEnrollmentRow row = outcomes.get(key);
+            boolean repeated = reported.put(key, Boolean.TRUE) != null;
+            if (row.created != null && !repeated) {
+                results.add(BatchItemResult.success(i, "CREATED", row.created));
+            } else if (row.created != null || row.existing != null) {
+                results.add(BatchItemResult.success(i, "ALREADY_ENROLLED", row.created != null ? row.created : row.existing));
+            } else if (!row.studentExists) {
+                results.add(BatchItemResult.failure(i, "STUDENT_NOT_FOUND", "Student not found."));
+            } else if (!row.courseExists) {
+                results.add(BatchItemResult.failure(i, "COURSE_NOT_FOUND", "Course not found."));
+            } else {
+                // Параллельная транзакция записала ту же пару между снимком и вставкой
+                results.add(BatchItemResult.failure(i, "ALREADY_ENROLLED", "Student is already enrolled in this course."));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Массовая отмена записи по парам (studentId, courseId) одним DELETE.
+     * Статусы: DELETED, NOT_ENROLLED, INVALID.
+     */
+    public List<BatchItemResult<StudentCourse>> unenrollStudents(List<StudentCourse> pairs) {
+        List<Integer> studentIds = new ArrayList<>(pairs.size());
+        List<Integer> courseIds = new ArrayList<>(pairs.size());
+        for (StudentCourse pair : pairs) {
+            if (isValidPair(pair)) {
+                studentIds.add(pair.getStudentId());
+                courseIds.add(pair.getCourseId());
+            }
+        }
+
+        Map<Long, StudentCourse> deleted = new HashMap<>();
+        if (!studentIds.isEmpty()) {
+            logger.info("Attempting to bulk unenroll {} pairs.", studentIds.size());
+            for (StudentCourse enrollment : enrollmentDao.unenrollStudents(studentIds, courseIds)) {
+                deleted.put(pairKey(enrollment.getStudentId(), enrollment.getCourseId()), enrollment);
+            }
+            Set<Integer> affectedStudents = new HashSet<>();
+            deleted.values().forEach(enrollment -> affectedStudents.add(enrollment.getStudentId()));
+            refreshGradeSummaries(affectedStudents);
+        }
+
+        List<BatchItemResult<StudentCourse>> results = new ArrayList<>(pairs.size());
+        for (int i = 0; i < pairs.size(); i++) {
+            StudentCourse pair = pairs.get(i);
+            if (!isValidPair(pair)) {
+                results.add(BatchItemResult.failure(i, "INVALID", "studentId and courseId are required."));
+                continue;
+            }
+            StudentCourse enrollment = deleted.remove(pairKey(pair.getStudentId(), pair.getCourseId()));
+            if (enrollment != null) {
+                results.add(BatchItemResult.success(i, "DELETED", enrollment));
+            } else {
+                results.add(BatchItemResult.failure(i, "NOT_ENROLLED", "Enrollment not found."));
+            }
+        }
+        return results;
+    }
+
+    private static boolean isValidPair(StudentCourse pair) {
+        return pair != null && pair.getStudentId() > 0 && pair.getCourseId() > 0;
+    }
+
+    private static long pairKey(int studentId, int courseId) {
+        return ((long) studentId << 32) | (courseId & 0xFFFFFFFFL);
     }
 
     public boolean unenrollStudent(int studentCourseId) {
         logger.info("Attempting to unenroll student by enrollment ID {}", studentCourseId);
         // Проверка, существует ли такая запись, перед удалением
-        if (enrollmentDao.findById(studentCourseId).isEmpty()) {
+        Optional<StudentCourse> enrollment = enrollmentDao.findById(studentCourseId);
+        if (enrollment.isEmpty()) {
             logger.warn("Unenrollment attempt failed: Enrollment ID {} not found.", studentCourseId);
             return false; // или throw new EntityNotFoundException("Enrollment not found");
         }
-        return enrollmentDao.unenrollStudent(studentCourseId);
+        boolean deleted = enrollmentDao.unenrollStudent(studentCourseId);
+        if (deleted) {
+            refreshGradeSummaries(Set.of(enrollment.get().getStudentId()));
+        }
+        return deleted;
+    }
+
+    // Ошибка пересчета не отменяет отписку: сводку студентов восстанавливает команда консоли gpa-rebuild
+    private void refreshGradeSummaries(Set<Integer> studentIds) {
+        try {
+            gradeSummaryDao.refreshForStudents(studentIds);
+        } catch (RuntimeException e) {
+            logger.error("Grade summary refresh failed for students {}: {}", studentIds, e.getMessage());
+        }
     }
 
     public Optional<StudentCourse> getEnrollmentById(int studentCourseId) {
@@ -67,4 +182,31 @@ public class EnrollmentService {
         logger.debug("Fetching all enrollments (admin action)");
         return enrollmentDao.findAll();
     }
-}
\ No newline at end of file
+
+    /**
+     * Возвращает страницу записей после afterId (keyset-пагинация) с приблизительным общим количеством.
+     * @param afterId ID последней записи предыдущей страницы или 0 для первой страницы.
+     * @param limit размер страницы.
+     */
+    public Page<StudentCourse> getEnrollmentsPage(int afterId, int limit) {
+        logger.debug("Fetching enrollments page after ID {} (limit {})", afterId, limit);
+        List<StudentCourse> enrollments = enrollmentDao.findPage(afterId, limit + 1);
+        String nextCursor = null;
+        if (enrollments.size() > limit) {
+            enrollments = enrollments.subList(0, limit);
+            nextCursor = String.valueOf(enrollments.get(limit - 1).getStudentCourseId());
+        }
+        long estimate = enrollmentDao.estimateCount();
+        return new Page<>(enrollments, nextCursor, estimate >= 0 ? estimate : null);
+    }
+
+    public void streamAllEnrollments(Consumer<StudentCourse> consumer) {
+        logger.debug("Streaming all enrollments (admin action)");
+        long count = enrollmentDao.streamAll(consumer);
+        logger.debug("Streamed {} enrollments", count);
+    }
+
+    public long getApproximateEnrollmentCount() {
+        return enrollmentDao.estimateCount();
+    }
+}
@@ -2,22 +2,34 @@ package org.example.education.service;
 
 import org.example.education.dao.EnrollmentDao;
 import org.example.education.dao.GradeDao;
+import org.example.education.dao.GradeSummaryDao;
+import org.example.education.model.BatchItemResult;
 import org.example.education.model.Grade;
+import org.example.education.model.GradeSummary;
+import org.example.education.model.GroupGradeSummary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public class GradeService {
     private static final Logger logger = LoggerFactory.getLogger(GradeService.class);
     private final GradeDao gradeDao;
     private final EnrollmentDao enrollmentDao; // Для проверки существования student_course_id
+    private final GradeSummaryDao gradeSummaryDao; // Материализованные GPA, пересчитываются при изменении оценок
 
-    public GradeService(GradeDao gradeDao, EnrollmentDao enrollmentDao) {
+    public GradeService(GradeDao gradeDao, EnrollmentDao enrollmentDao, GradeSummaryDao gradeSummaryDao) {
         this.gradeDao = gradeDao;
         this.enrollmentDao = enrollmentDao;
+        this.gradeSummaryDao = gradeSummaryDao;
     }
 
     public Grade addGrade(Grade grade) {
@@ -35,7 +47,68 @@ public class GradeService {
             grade.setGradeDate(LocalDate.now());
         }
         logger.info("Attempting to add grade for enrollment ID {}.", grade.getStudentCourseId());
-        return gradeDao.save(grade);
+        Grade saved = gradeDao.save(grade);
+        refreshSummaries(Set.of(saved.getStudentCourseId()));
+        return saved;
+    }
+
+    /**
+     * Пакетное добавление оценок: все student_course_id проверяются одним запросом,
+     * корректные оценки вставляются одним JDBC-пакетом в одной транзакции.
+     * @return результат по каждому элементу в порядке входного списка (CREATED или FAILED с причиной).
+     */
+    public List<BatchItemResult<Grade>> addGrades(List<Grade> grades) {
+        Set<Integer> referencedIds = new HashSet<>();
+        for (Grade grade : grades) {
+            if (grade != null && grade.getStudentCourseId() > 0) {
+                referencedIds.add(grade.getStudentCourseId());
+            }
+        }
+        Set<Integer> existingIds = enrollmentDao.findExistingIds(referencedIds);
+
+        List<BatchItemResult<Grade>> results = new ArrayList<>(grades.size());
+        List<Grade> validGrades = new ArrayList<>(grades.size());
+        List<Integer> validIndexes = new ArrayList<>(grades.size());
+        for (int i = 0; i < grades.size(); i++) {
+            Grade grade = grades.get(i);
+            String error = null;
+            if (grade == null || grade.getStudentCourseId() <= 0) {
+                error = "Valid studentCourseId is required.";
+            } else if (grade.getGradeValue() == null || grade.getGradeValue().trim().isEmpty()) {
+                error = "Grade value cannot be empty.";
+            } else if (!existingIds.contains(grade.getStudentCourseId())) {
+                error = "Enrollment record (student_course_id) not found.";
+            }
+            if (error != null) {
+                results.add(BatchItemResult.failure(i, "FAILED", error));
+                continue;
+            }
+            if (grade.getGradeDate() == null) {
+                grade.setGradeDate(LocalDate.now());
+            }
+            results.add(null); // Заполняется после вставки
+            validGrades.add(grade);
+            validIndexes.add(i);
+        }
+
+        if (!validGrades.isEmpty()) {
+            logger.info("Attempting to add grades batch: {} valid of {} submitted.", validGrades.size(), grades.size());
+            try {
+                gradeDao.saveAll(validGrades);
+                Set<Integer> affectedEnrollments = new HashSet<>();
+                for (int j = 0; j < validGrades.size(); j++) {
+                    results.set(validIndexes.get(j), BatchItemResult.success(validIndexes.get(j), "CREATED", validGrades.get(j)));
+                    affectedEnrollments.add(validGrades.get(j).getStudentCourseId());
+                }
+                refreshSummaries(affectedEnrollments);
+            } catch (RuntimeException e) {
+                // Транзакция откатилась целиком (например, запись удалили между проверкой и вставкой)
+                for (Integer index : validIndexes) {
+                    results.set(index, BatchItemResult.failure(index, "FAILED", e.getMessage()));
+                }
+            }
+        }
+        return results;
     }
 
     public Optional<Grade> getGradeById(int gradeId) {
@@ -68,15 +141,64 @@ public class GradeService {
             grade.setGradeDate(LocalDate.now());
         }
         logger.info("Attempting to update grade ID: {}", gradeId);
-        return gradeDao.update(grade);
+        Optional<Grade> before = gradeDao.findById(gradeId); // Оценка могла перейти к другой записи на курс
+        boolean updated = gradeDao.update(grade);
+        if (updated) {
+            Set<Integer> affectedEnrollments = new HashSet<>();
+            affectedEnrollments.add(grade.getStudentCourseId());
+            before.ifPresent(previous -> affectedEnrollments.add(previous.getStudentCourseId()));
+            refreshSummaries(affectedEnrollments);
+        }
+        return updated;
     }
 
     public boolean deleteGrade(int gradeId) {
         logger.info("Attempting to delete grade ID: {}", gradeId);
-        if (gradeDao.findById(gradeId).isEmpty()) {
+        Optional<Grade> existing = gradeDao.findById(gradeId);
+        if (existing.isEmpty()) {
             logger.warn("Delete grade attempt failed: Grade ID {} not found.", gradeId);
             return false;
         }
-        return gradeDao.delete(gradeId);
+        boolean deleted = gradeDao.delete(gradeId);
+        if (deleted) {
+            refreshSummaries(Set.of(existing.get().getStudentCourseId()));
+        }
+        return deleted;
+    }
+
+    public Optional<GradeSummary> getGradeSummaryForStudent(int studentId) {
+        logger.debug("Fetching grade summary for student ID: {}", studentId);
+        return gradeSummaryDao.findByStudentId(studentId);
+    }
+
+    /**
+     * Рейтинг группы по материализованной сводке: один индексный запрос без сканирования оценок.
+     * @return сводка группы или пустой Optional, если в группе нет студентов.
+     */
+    public Optional<GroupGradeSummary> getGroupGradeSummary(String groupName) {
+        logger.debug("Fetching grade summary for group: {}", groupName);
+        List<GradeSummary> students = gradeSummaryDao.findByGroupRanked(groupName);
+        if (students.isEmpty()) {
+            return Optional.empty();
+        }
+        BigDecimal gpaSum = BigDecimal.ZERO;
+        int withGpa = 0;
+        for (GradeSummary student : students) {
+            if (student.getGpa() != null) {
+                gpaSum = gpaSum.add(student.getGpa());
+                withGpa++;
+            }
+        }
+        BigDecimal averageGpa = withGpa > 0 ? gpaSum.divide(BigDecimal.valueOf(withGpa), 2, RoundingMode.HALF_UP) : null;
+        return Optional.of(new GroupGradeSummary(groupName, students.size(), averageGpa, students));
+    }
+
+    // Ошибка пересчета не отменяет изменение оценки: сводку студентов восстанавливает команда консоли gpa-rebuild
+    private void refreshSummaries(Collection<Integer> studentCourseIds) {
+        try {
+            gradeSummaryDao.refreshForStudentCourses(studentCourseIds);
+        } catch (RuntimeException e) {
+            logger.error("Grade summary refresh failed for enrollments {}: {}", studentCourseIds, e.getMessage());
+        }
     }
 }
\ No newline at end of file
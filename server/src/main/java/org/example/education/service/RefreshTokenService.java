@@ -0,0 +1,143 @@
+package org.example.education.service;
+
+import org.example.education.config.ServerConfig;
+import org.example.education.dao.RefreshTokenDao;
+import org.example.education.model.UserType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Refresh-токены: непрозрачная случайная строка, которую клиент обменивает на новый access-токен
+ * без пароля (одна запись в БД вместо проверки BCrypt). Токен одноразовый - при обмене выдается новый,
+ * и срок сессии отсчитывается заново (скользящая сессия). Повторное предъявление использованного
+ * токена отзывает все семейство: и у злоумышленника, и у владельца.
+ */
+public class RefreshTokenService {
+    private static final Logger logger = LoggerFactory.getLogger(RefreshTokenService.class);
+    private static final Logger auditLogger = LoggerFactory.getLogger("AUDIT");
+
+    private static final int TOKEN_BYTES = 32;
+    private static final long CLEANUP_PERIOD_MINUTES = 60;
+
+    private final RefreshTokenDao refreshTokenDao;
+    private final long ttlMillis;
+    private final SecureRandom random = new SecureRandom();
+    private final ScheduledExecutorService scheduler;
+
+    // Выданный клиенту токен; в БД хранится только его хеш
+    public static final class IssuedToken {
+        private final String token;
+        private final long expiresAtMillis;
+
+        IssuedToken(String token, long expiresAtMillis) {
+            this.token = token;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public String getToken() { return token; }
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+    }
+
+    // Результат обмена: пользователь (с актуальными email и ролью) и следующий токен
+    public static final class Rotation {
+        private final RefreshTokenDao.RefreshPrincipal principal;
+        private final IssuedToken next;
+
+        Rotation(RefreshTokenDao.RefreshPrincipal principal, IssuedToken next) {
+            this.principal = principal;
+            this.next = next;
+        }
+
+        public RefreshTokenDao.RefreshPrincipal getPrincipal() { return principal; }
+        public IssuedToken getNext() { return next; }
+    }
+
+    public RefreshTokenService(RefreshTokenDao refreshTokenDao) {
+        this.refreshTokenDao = refreshTokenDao;
+        this.ttlMillis = ServerConfig.getRefreshTokenTtlMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-token-cleanup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            int deleted = refreshTokenDao.deleteExpired();
+            if (deleted > 0) {
+                logger.debug("Deleted {} expired refresh tokens.", deleted);
+            }
+        }, CLEANUP_PERIOD_MINUTES, CLEANUP_PERIOD_MINUTES, TimeUnit.MINUTES);
+    }
+
+    // Начинает новое семейство токенов (вход по паролю)
+    public IssuedToken issue(UserType userType, int userId) {
+        IssuedToken issued = newToken();
+        refreshTokenDao.insert(hash(issued.getToken()), UUID.randomUUID(), userType, userId, toLocalDateTime(issued.getExpiresAtMillis()));
+        return issued;
+    }
+
+    /**
+     * Обменивает токен на следующий. Пусто, если токен недействителен; если он уже был использован,
+     * семейство отзывается.
+     */
+    public Optional<Rotation> rotate(String refreshToken) {
+        if (refreshToken == null || refreshToken.isEmpty()) {
+            return Optional.empty();
+        }
+        String tokenHash = hash(refreshToken);
+        IssuedToken next = newToken();
+        Optional<RefreshTokenDao.RefreshPrincipal> principal =
+                refreshTokenDao.rotate(tokenHash, hash(next.getToken()), toLocalDateTime(next.getExpiresAtMillis()));
+        if (principal.isPresent()) {
+            return Optional.of(new Rotation(principal.get(), next));
+        }
+        if (refreshTokenDao.deleteFamilyIfReused(tokenHash)) {
+            auditLogger.warn("REFRESH_TOKEN_REUSE: a used refresh token was presented again, its session family is revoked.");
+        }
+        return Optional.empty();
+    }
+
+    public void revoke(String refreshToken) {
+        if (refreshToken != null && !refreshToken.isEmpty()) {
+            refreshTokenDao.deleteFamily(hash(refreshToken));
+        }
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private IssuedToken newToken() {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        return new IssuedToken(Base64.getUrlEncoder().withoutPadding().encodeToString(bytes), System.currentTimeMillis() + ttlMillis);
+    }
+
+    // Токен случайный (256 бит), поэтому достаточно быстрого SHA-256 без соли и BCrypt
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault());
+    }
+}
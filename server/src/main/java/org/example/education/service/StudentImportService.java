@@ -0,0 +1,271 @@
+package org.example.education.service;
+
+import org.example.education.config.ServerConfig;
+import org.example.education.dao.StudentDao;
+import org.example.education.model.Student;
+import org.example.education.model.StudentImportResult;
+import org.example.education.util.JsonUtil;
+import org.example.education.util.PasswordUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Массовый импорт студентов (CSV или NDJSON). Строки читаются пачками по BATCH_SIZE,
+ * пароли пачки хешируются параллельно на import.hashing.threads потоках, затем пачка загружается одним COPY.
+ * Ошибки отдельных строк (валидация, повтор email) попадают в отчет и не прерывают импорт.
+ */
+public class StudentImportService {
+    private static final Logger logger = LoggerFactory.getLogger(StudentImportService.class);
+    private static final int BATCH_SIZE = 5000;
+    private static final List<String> REQUIRED_CSV_COLUMNS = List.of("firstname", "lastname", "email", "password");
+
+    // Отдельный пул с ограниченной параллельностью: импорт не занимает общий ForkJoinPool.commonPool()
+    // и не забирает все ядра у PasswordHashingPool, через который идут входы и смена паролей
+    private final ForkJoinPool hashingPool = new ForkJoinPool(ServerConfig.getImportHashingThreads());
+    private final StudentDao studentDao;
+
+    public enum ImportFormat { CSV, NDJSON }
+
+    public StudentImportService(StudentDao studentDao) {
+        this.studentDao = studentDao;
+    }
+
+    public StudentImportResult importStudents(BufferedReader reader, ImportFormat format) throws IOException {
+        StudentImportResult result = new StudentImportResult();
+        Set<String> seenEmails = new HashSet<>();
+        List<PendingRow> batch = new ArrayList<>(BATCH_SIZE);
+        Map<String, Integer> csvColumns = null;
+        int lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            if (format == ImportFormat.CSV && csvColumns == null) {
+                csvColumns = parseCsvHeader(line);
+                continue;
+            }
+            result.countRow();
+            PendingRow row;
+            try {
+                row = (format == ImportFormat.CSV) ? parseCsvRow(lineNumber, line, csvColumns) : parseJsonRow(lineNumber, line);
+                validate(row);
+            } catch (IllegalArgumentException e) {
+                result.addFailure(lineNumber, null, e.getMessage());
+                continue;
+            }
+            if (!seenEmails.add(row.student.getEmail())) {
+                result.addFailure(lineNumber, row.student.getEmail(), "Email is duplicated within the import.");
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() >= BATCH_SIZE) {
+                flushBatch(batch, result);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushBatch(batch, result);
+        }
+        logger.info("Student import finished: {} rows, {} imported, {} failed.", result.getTotalRows(), result.getImportedRows(), result.getFailedRows());
+        return result;
+    }
+
+    public void shutdown() {
+        hashingPool.shutdownNow();
+    }
+
+    private void flushBatch(List<PendingRow> batch, StudentImportResult result) {
+        try {
+            hashPasswords(batch);
+        } catch (RuntimeException e) {
+            logger.error("Password hashing failed for import batch of {} rows", batch.size(), e);
+            batch.forEach(row -> result.addFailure(row.line, row.student.getEmail(), "Password hashing failed."));
+            return;
+        }
+
+        List<StudentDao.StudentWithPasswordHash> rows = new ArrayList<>(batch.size());
+        for (PendingRow row : batch) {
+            rows.add(new StudentDao.StudentWithPasswordHash(row.student, row.passwordHash));
+        }
+
+        Map<String, Integer> createdIds;
+        try {
+            createdIds = studentDao.copyInsertIgnoringDuplicates(rows);
+        } catch (RuntimeException e) {
+            // Пачка откатилась целиком, но следующие пачки продолжают загружаться
+            batch.forEach(row -> result.addFailure(row.line, row.student.getEmail(), e.getMessage()));
+            return;
+        }
+
+        for (PendingRow row : batch) {
+            if (createdIds.containsKey(row.student.getEmail())) {
+                result.countImported();
+            } else {
+                result.addFailure(row.line, row.student.getEmail(), "Email already exists.");
+            }
+        }
+    }
+
+    private void hashPasswords(List<PendingRow> batch) {
+        // parallelStream внутри задачи пула выполняется на потоках этого пула
+        try {
+            hashingPool.submit(() -> batch.parallelStream()
+                    .forEach(row -> row.passwordHash = PasswordUtil.hashPassword(row.rawPassword)))
+                    .get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while hashing passwords.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Error hashing passwords: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // Те же правила, что и в StudentService.createStudent, плюс длины колонок, чтобы одна строка не валила весь COPY
+    private void validate(PendingRow row) {
+        Student student = row.student;
+        requireText(student.getFirstName(), "firstName", 100);
+        requireText(student.getLastName(), "lastName", 100);
+        requireText(student.getEmail(), "email", 255);
+        if (student.getGroupName() != null && student.getGroupName().length() > 50) {
+            throw new IllegalArgumentException("groupName must be at most 50 characters.");
+        }
+        if (row.rawPassword == null || row.rawPassword.trim().isEmpty()) {
+            throw new IllegalArgumentException("Password is required for a new student.");
+        }
+        if (row.rawPassword.length() < 5) {
+            throw new IllegalArgumentException("Password must be at least 5 characters long.");
+        }
+    }
+
+    private static void requireText(String value, String field, int maxLength) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException(field + " is required.");
+        }
+        if (value.length() > maxLength) {
+            throw new IllegalArgumentException(field + " must be at most " + maxLength + " characters.");
+        }
+    }
+
+    private Map<String, Integer> parseCsvHeader(String line) {
+        List<String> names = splitCsvLine(line);
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String required : REQUIRED_CSV_COLUMNS) {
+            if (!columns.containsKey(required)) {
+                throw new IllegalArgumentException("CSV header must contain columns: firstName, lastName, email, password (groupName optional).");
+            }
+        }
+        return columns;
+    }
+
+    private PendingRow parseCsvRow(int lineNumber, String line, Map<String, Integer> columns) {
+        List<String> values = splitCsvLine(line);
+        Student student = new Student();
+        student.setFirstName(csvValue(values, columns, "firstname"));
+        student.setLastName(csvValue(values, columns, "lastname"));
+        student.setEmail(csvValue(values, columns, "email"));
+        student.setGroupName(csvValue(values, columns, "groupname"));
+        Integer passwordIndex = columns.get("password");
+        String password = passwordIndex < values.size() ? values.get(passwordIndex) : null; // Пароль не обрезаем
+        return new PendingRow(lineNumber, student, password);
+    }
+
+    private static String csvValue(List<String> values, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // Разбор одной строки CSV: поля через запятую, кавычки экранируются удвоением. Переносы внутри полей не поддерживаются.
+    private static List<String> splitCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (inQuotes) {
+            throw new IllegalArgumentException("Unterminated quoted field.");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    @SuppressWarnings("unchecked")
+    private PendingRow parseJsonRow(int lineNumber, String line) {
+        Map<String, Object> payload;
+        try {
+            payload = JsonUtil.fromJson(line, Map.class);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid JSON.");
+        }
+        if (payload == null) { // Строка "null" разбирается без ошибки, но объекта студента в ней нет
+            throw new IllegalArgumentException("Invalid JSON.");
+        }
+        Student student = new Student();
+        student.setFirstName(jsonText(payload, "firstName"));
+        student.setLastName(jsonText(payload, "lastName"));
+        student.setEmail(jsonText(payload, "email"));
+        student.setGroupName(jsonText(payload, "groupName"));
+        Object password = payload.get("password"); // Пароль не обрезаем
+        return new PendingRow(lineNumber, student, password != null ? password.toString() : null);
+    }
+
+    private static String jsonText(Map<String, Object> payload, String key) {
+        Object value = payload.get(key);
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        return text.isEmpty() ? null : text;
+    }
+
+    private static class PendingRow {
+        final int line;
+        final Student student;
+        final String rawPassword;
+        volatile String passwordHash; // Заполняется потоками hashingPool
+
+        PendingRow(int line, Student student, String rawPassword) {
+            this.line = line;
+            this.student = student;
+            this.rawPassword = rawPassword;
+        }
+    }
+}
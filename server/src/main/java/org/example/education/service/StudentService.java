@@ -1,13 +1,16 @@
 package org.example.education.service;
 
 import org.example.education.dao.StudentDao;
+import org.example.education.model.Page;
 import org.example.education.model.Student;
-import org.example.education.util.PasswordUtil; // Убедитесь, что импортирован
+import org.example.education.model.Transcript;
+import org.example.education.util.PasswordHashingPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class StudentService {
     private static final Logger logger = LoggerFactory.getLogger(StudentService.class);
@@ -22,11 +25,62 @@ public class StudentService {
         return studentDao.findById(id);
     }
 
+    /**
+     * Поиск студентов по подстроке имени, фамилии, email или группы с необязательными фильтрами.
+     * @throws IllegalArgumentException если не задан ни один критерий или строка поиска короче 2 символов.
+     */
+    public List<Student> searchStudents(String query, String groupName, Integer courseId, int limit) {
+        String normalizedQuery = (query == null || query.trim().isEmpty()) ? null : query.trim();
+        String normalizedGroup = (groupName == null || groupName.trim().isEmpty()) ? null : groupName.trim();
+        if (normalizedQuery == null && normalizedGroup == null && courseId == null) {
+            throw new IllegalArgumentException("At least one of q, group or courseId is required.");
+        }
+        if (normalizedQuery != null && normalizedQuery.length() < 2) {
+            throw new IllegalArgumentException("Search query must be at least 2 characters long.");
+        }
+        logger.debug("Searching students: q='{}', group={}, courseId={}, limit={}", normalizedQuery, normalizedGroup, courseId, limit);
+        return studentDao.search(normalizedQuery, normalizedGroup, courseId, limit);
+    }
+
+    public Optional<Transcript> getTranscript(int id) {
+        logger.debug("Building transcript for student ID: {}", id);
+        return studentDao.findTranscript(id);
+    }
+
     public List<Student> getAllStudents() {
         logger.debug("Fetching all students");
         return studentDao.findAll();
     }
 
+    /**
+     * Возвращает страницу студентов после курсора (keyset-пагинация) с приблизительным общим количеством.
+     * @param afterCursor непрозрачный курсор из nextCursor предыдущей страницы или null.
+     * @param limit размер страницы.
+     */
+    public Page<Student> getStudentsPage(String afterCursor, int limit) {
+        StudentDao.PageCursor after = (afterCursor == null || afterCursor.isEmpty()) ? null : StudentDao.PageCursor.parse(afterCursor);
+        logger.debug("Fetching students page after {} (limit {})", after, limit);
+        // Запрашиваем на одну строку больше, чтобы понять, есть ли следующая страница
+        List<Student> students = studentDao.findPage(after, limit + 1);
+        String nextCursor = null;
+        if (students.size() > limit) {
+            students = students.subList(0, limit);
+            nextCursor = StudentDao.PageCursor.of(students.get(limit - 1)).toString();
+        }
+        long estimate = studentDao.estimateCount();
+        return new Page<>(students, nextCursor, estimate >= 0 ? estimate : null);
+    }
+
+    public void streamAllStudents(Consumer<Student> consumer) {
+        logger.debug("Streaming all students");
+        long count = studentDao.streamAll(consumer);
+        logger.debug("Streamed {} students", count);
+    }
+
+    public long getApproximateStudentCount() {
+        return studentDao.estimateCount();
+    }
+
     public Student createStudent(Student student, String rawPassword) {
         if (student == null || student.getEmail() == null || student.getEmail().trim().isEmpty() ||
                 student.getFirstName() == null || student.getFirstName().trim().isEmpty() ||
@@ -78,7 +132,7 @@ public class StudentService {
             if (newRawPassword.length() < 5) { // Пример валидации длины нового пароля
                 throw new IllegalArgumentException("New password must be at least 5 characters long.");
             }
-            newPasswordHash = PasswordUtil.hashPassword(newRawPassword); // Хешируем сырой пароль
+            newPasswordHash = PasswordHashingPool.hashPassword(newRawPassword); // Хешируем сырой пароль в пуле BCrypt
             logger.info("Attempting to update student ID: {} with new password.", id);
         } else {
             logger.info("Attempting to update student ID: {} (password not changed).", id);
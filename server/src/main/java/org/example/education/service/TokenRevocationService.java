@@ -0,0 +1,151 @@
+package org.example.education.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.education.config.ServerConfig;
+import org.example.education.dao.RevokedTokenDao;
+import org.example.education.util.BloomFilter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Отзыв JWT при выходе: id токена (jti) хранится в таблице revoked_tokens до истечения токена.
+ * Проверка на каждом запросе идет по фильтру Блума в памяти; точный набор отозванных id
+ * просматривается только при срабатывании фильтра, а это почти всегда действительно отозванный токен.
+ * Отзывы с других экземпляров сервера подгружаются из БД фоновой синхронизацией, она же удаляет
+ * истекшие записи и перестраивает фильтр (из фильтра Блума нельзя удалять).
+ */
+public class TokenRevocationService implements MeterBinder {
+    private static final Logger logger = LoggerFactory.getLogger(TokenRevocationService.class);
+    private static final Logger auditLogger = LoggerFactory.getLogger("AUDIT");
+
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final long SYNC_OVERLAP_SECONDS = 5; // Запас на транзакции, зафиксированные позже своего revoked_at
+
+    private final RevokedTokenDao revokedTokenDao;
+    private final long expectedTokens;
+    private final Map<String, Long> revoked = new ConcurrentHashMap<>(); // id токена -> истечение, мс
+    private volatile BloomFilter filter;
+    private LocalDateTime lastSeenRevokedAt; // Только поток синхронизации (и start до его запуска)
+    private final ScheduledExecutorService scheduler;
+
+    private final AtomicLong filterHits = new AtomicLong();
+    private final AtomicLong falsePositives = new AtomicLong();
+
+    public TokenRevocationService(RevokedTokenDao revokedTokenDao) {
+        this.revokedTokenDao = revokedTokenDao;
+        this.expectedTokens = ServerConfig.getRevocationExpectedTokens();
+        this.filter = new BloomFilter(expectedTokens, FALSE_POSITIVE_RATE);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "token-revocation-sync");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Загружает действующие отзывы из БД и запускает периодическую синхронизацию.
+     * @throws RuntimeException если отзывы не загрузились: без них отозванные токены снова стали бы действующими.
+     */
+    public void start() {
+        sync();
+        logger.info("Loaded {} active token revocations.", revoked.size());
+        long period = ServerConfig.getRevocationSyncSeconds();
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                sync();
+            } catch (RuntimeException e) {
+                logger.warn("Token revocation sync failed, will retry: {}", e.getMessage());
+            }
+        }, period, period, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Отзывает токен до момента его истечения. Сначала пишет в БД: если запись не удалась,
+     * исключение доходит до клиента, а не оставляет токен молча действующим.
+     */
+    public void revoke(String tokenId, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return; // Истекший токен и так отклоняется
+        }
+        revokedTokenDao.revoke(tokenId, LocalDateTime.ofInstant(Instant.ofEpochMilli(expiresAtMillis), ZoneId.systemDefault()));
+        add(tokenId, expiresAtMillis);
+        auditLogger.info("TOKEN_REVOKED: {} until {}", tokenId, Instant.ofEpochMilli(expiresAtMillis));
+    }
+
+    // Вызывается на каждом аутентифицированном запросе: без блокировок и без обращения к БД
+    public boolean isRevoked(String tokenId) {
+        if (!filter.mightContain(tokenId)) {
+            return false;
+        }
+        filterHits.incrementAndGet();
+        if (revoked.containsKey(tokenId)) {
+            return true;
+        }
+        falsePositives.incrementAndGet();
+        return false;
+    }
+
+    // Сначала точный набор, потом фильтр: срабатывание фильтра всегда находит id в наборе
+    private synchronized void add(String tokenId, long expiresAtMillis) {
+        revoked.put(tokenId, expiresAtMillis);
+        filter.put(tokenId);
+    }
+
+    private void sync() {
+        LocalDateTime since = lastSeenRevokedAt != null ? lastSeenRevokedAt.minusSeconds(SYNC_OVERLAP_SECONDS) : null;
+        List<RevokedTokenDao.RevokedToken> fresh = revokedTokenDao.findActiveRevokedAfter(since);
+        for (RevokedTokenDao.RevokedToken token : fresh) {
+            add(token.tokenId, token.expiresAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+            if (lastSeenRevokedAt == null || token.revokedAt.isAfter(lastSeenRevokedAt)) {
+                lastSeenRevokedAt = token.revokedAt;
+            }
+        }
+        long now = System.currentTimeMillis();
+        if (revoked.values().removeIf(expiresAt -> expiresAt <= now)) {
+            rebuildFilter();
+        }
+        int deleted = revokedTokenDao.deleteExpired();
+        if (deleted > 0) {
+            logger.debug("Deleted {} expired token revocations.", deleted);
+        }
+    }
+
+    // Новый фильтр заполняется под той же блокировкой, что и add, поэтому отзыв не теряется при подмене
+    private synchronized void rebuildFilter() {
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, 2L * revoked.size()), FALSE_POSITIVE_RATE);
+        for (String tokenId : revoked.keySet()) {
+            rebuilt.put(tokenId);
+        }
+        filter = rebuilt;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("auth.revoked.tokens", revoked, Map::size)
+                .description("Revoked tokens that have not expired yet")
+                .register(registry);
+        FunctionCounter.builder("auth.revocation.filter.hits", filterHits, AtomicLong::get)
+                .description("Token checks that passed the Bloom filter and consulted the exact set")
+                .register(registry);
+        FunctionCounter.builder("auth.revocation.filter.false.positives", falsePositives, AtomicLong::get)
+                .register(registry);
+    }
+
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
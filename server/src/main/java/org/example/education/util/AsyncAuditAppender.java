@@ -0,0 +1,79 @@
+package org.example.education.util;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Асинхронный аппендер для логгера AUDIT на основе AsyncAppender из logback: поток запроса только
+ * кладет событие в ограниченную очередь, а запись во вложенные аппендеры (файл, консоль) выполняет
+ * отдельный поток. Поведение при заполненной очереди задает dropPolicy:
+ * DROP - событие отбрасывается, поток запроса никогда не ждет (neverBlock);
+ * DROP_INFO (по умолчанию) - когда свободно меньше 20% очереди, отбрасываются события ниже WARN,
+ * а WARN/ERROR ждут места; BLOCK - ждут все события.
+ * Отброшенные события считаются (audit.log.dropped), заполненность очереди - audit.log.queue.size;
+ * тег appender - имя аппендера. AsyncAppender передает события только одному вложенному аппендеру,
+ * поэтому файл и консоль обслуживают два экземпляра.
+ */
+public final class AsyncAuditAppender extends AsyncAppender implements MeterBinder {
+
+    public enum DropPolicy { DROP, DROP_INFO, BLOCK }
+
+    private static final int MAX_FLUSH_TIME_MILLIS = 5000; // Сколько дописывать оставшиеся события при остановке
+
+    private final AtomicLong dropped = new AtomicLong();
+
+    public AsyncAuditAppender() {
+        setMaxFlushTime(MAX_FLUSH_TIME_MILLIS);
+    }
+
+    public void setDropPolicy(String dropPolicy) {
+        // DROP_INFO - поведение AsyncAppender по умолчанию (порог отбрасывания - 20% очереди)
+        DropPolicy policy = DropPolicy.valueOf(dropPolicy.trim().toUpperCase(Locale.ROOT));
+        setNeverBlock(policy == DropPolicy.DROP);
+        if (policy != DropPolicy.DROP_INFO) {
+            setDiscardingThreshold(0); // Уровень события не важен: решает только заполненность очереди
+        }
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        // При neverBlock logback молча отбрасывает событие, не поместившееся в очередь; счет приблизительный,
+        // так как место могло освободиться между проверкой и offer
+        if (isNeverBlock() && isStarted() && getRemainingCapacity() == 0) {
+            dropped.incrementAndGet();
+        }
+        super.append(event);
+    }
+
+    // Вызывается, только когда очередь заполнена выше порога: true означает, что событие отброшено
+    @Override
+    protected boolean isDiscardable(ILoggingEvent event) {
+        boolean discardable = super.isDiscardable(event);
+        if (discardable) {
+            dropped.incrementAndGet();
+        }
+        return discardable;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("audit.log.queue.size", this, AsyncAuditAppender::getNumberOfElementsInQueue)
+                .description("Audit events waiting to be written")
+                .tag("appender", getName())
+                .register(registry);
+        Gauge.builder("audit.log.queue.capacity", this, AsyncAuditAppender::getQueueSize)
+                .tag("appender", getName())
+                .register(registry);
+        FunctionCounter.builder("audit.log.dropped", dropped, AtomicLong::get)
+                .description("Audit events dropped because the queue was full")
+                .tag("appender", getName())
+                .register(registry);
+    }
+}
@@ -0,0 +1,88 @@
+package org.example.education.util;
+
+import ch.qos.logback.classic.PatternLayout;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.classic.spi.IThrowableProxy;
+import ch.qos.logback.classic.spi.ThrowableProxyUtil;
+import ch.qos.logback.core.CoreConstants;
+import ch.qos.logback.core.LayoutBase;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Разметка журнала аудита: format=text - обычный шаблон (pattern), format=json - одна JSON-строка
+ * на событие (timestamp, level, thread, logger, message, mdc, exception) для загрузки в системы
+ * сбора логов без разбора текста.
+ */
+public class AuditLayout extends LayoutBase<ILoggingEvent> {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private String format = "text";
+    private String pattern;
+    private PatternLayout patternLayout;
+
+    public void setFormat(String format) {
+        this.format = format;
+    }
+
+    public void setPattern(String pattern) {
+        this.pattern = pattern;
+    }
+
+    private boolean isJson() {
+        return "json".equalsIgnoreCase(format);
+    }
+
+    @Override
+    public void start() {
+        if (!isJson()) {
+            if (pattern == null) {
+                addError("Pattern is required for the text audit format.");
+                return;
+            }
+            patternLayout = new PatternLayout();
+            patternLayout.setContext(getContext());
+            patternLayout.setPattern(pattern);
+            patternLayout.start();
+        }
+        super.start();
+    }
+
+    @Override
+    public String doLayout(ILoggingEvent event) {
+        if (!isJson()) {
+            return patternLayout.doLayout(event);
+        }
+        StringWriter out = new StringWriter(256);
+        try (JsonGenerator json = jsonFactory.createGenerator(out)) {
+            json.writeStartObject();
+            json.writeStringField("timestamp", Instant.ofEpochMilli(event.getTimeStamp()).toString());
+            json.writeStringField("level", event.getLevel().toString());
+            json.writeStringField("thread", event.getThreadName());
+            json.writeStringField("logger", event.getLoggerName());
+            json.writeStringField("message", event.getFormattedMessage());
+            Map<String, String> mdc = event.getMDCPropertyMap();
+            if (mdc != null && !mdc.isEmpty()) {
+                json.writeObjectFieldStart("mdc");
+                for (Map.Entry<String, String> entry : mdc.entrySet()) {
+                    json.writeStringField(entry.getKey(), entry.getValue());
+                }
+                json.writeEndObject();
+            }
+            IThrowableProxy throwable = event.getThrowableProxy();
+            if (throwable != null) {
+                json.writeStringField("exception", ThrowableProxyUtil.asString(throwable));
+            }
+            json.writeEndObject();
+        } catch (IOException e) {
+            addError("Failed to write audit event as JSON", e);
+            return "";
+        }
+        return out.append(CoreConstants.LINE_SEPARATOR).toString();
+    }
+}
@@ -1,10 +1,16 @@
 package org.example.education.util;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import spark.ResponseTransformer;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
 public class JsonUtil {
 
     private static final ObjectMapper objectMapper = createObjectMapper();
@@ -24,6 +30,14 @@ public class JsonUtil {
         }
     }
 
+    public static byte[] toJsonBytes(Object object) {
+        try {
+            return objectMapper.writeValueAsBytes(object); // Сразу UTF-8, без промежуточной строки
+        } catch (Exception e) {
+            throw new RuntimeException("Error converting object to JSON bytes", e);
+        }
+    }
+
     public static <T> T fromJson(String json, Class<T> clazz) {
         try {
             return objectMapper.readValue(json, clazz);
@@ -32,6 +46,26 @@ public class JsonUtil {
         }
     }
 
+    /**
+     * Потоково пишет JSON-массив в out: rowSource получает consumer и передает в него элементы по одному.
+     * Элементы сериализуются сразу, поэтому в памяти не держится ни весь список, ни итоговая строка.
+     * Поток out не закрывается.
+     */
+    public static <T> void writeJsonArray(OutputStream out, Consumer<Consumer<T>> rowSource) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            rowSource.accept(item -> {
+                try {
+                    generator.writeObject(item);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.writeEndArray();
+        }
+    }
+
     public static ResponseTransformer jsonResponseTransformer() {
         return JsonUtil::toJson;
     }
@@ -1,5 +1,11 @@
 package org.example.education.util;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.example.education.config.ServerConfig;
 import org.example.education.model.UserType;
 import io.jsonwebtoken.*;
@@ -10,8 +16,13 @@ import org.slf4j.LoggerFactory;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
 import java.util.Date;
 import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public class JwtUtil {
     private static final Logger logger = LoggerFactory.getLogger(JwtUtil.class);
@@ -19,12 +30,41 @@ public class JwtUtil {
     private final SecretKey secretKey;
     private final String issuer;
     private final long expirationMillis;
+    private final JwtParser parser; // Неизменяем и потокобезопасен: строится один раз, а не на каждый запрос
+
+    // Проверенные токены: SHA-256 токена -> извлеченная личность. Запись живет ровно до истечения токена,
+    // поэтому повторный запрос с тем же токеном обходится без HMAC-проверки и разбора JSON.
+    // Ключ - дайджест, а не сам токен: в памяти не хранятся пригодные для входа токены.
+    private final Cache<String, TokenIdentity> verifiedTokens = Caffeine.newBuilder()
+            .maximumSize(ServerConfig.getJwtCacheMaxSize())
+            .expireAfter(new Expiry<String, TokenIdentity>() {
+                @Override
+                public long expireAfterCreate(String key, TokenIdentity identity, long currentTime) {
+                    return TimeUnit.MILLISECONDS.toNanos(Math.max(0L, identity.getExpiresAtMillis() - System.currentTimeMillis()));
+                }
+
+                @Override
+                public long expireAfterUpdate(String key, TokenIdentity identity, long currentTime, long currentDuration) {
+                    return expireAfterCreate(key, identity, currentTime);
+                }
+
+                @Override
+                public long expireAfterRead(String key, TokenIdentity identity, long currentTime, long currentDuration) {
+                    return currentDuration;
+                }
+            })
+            .recordStats()
+            .build();
 
     public JwtUtil() {
         String configuredSecret = ServerConfig.getJwtSecretKey();
         this.secretKey = Keys.hmacShaKeyFor(configuredSecret.getBytes(StandardCharsets.UTF_8));
         this.issuer = ServerConfig.getJwtIssuer();
         this.expirationMillis = ServerConfig.getJwtExpirationMillis();
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(secretKey)
+                .requireIssuer(issuer)
+                .build();
     }
 
     public String generateToken(int userId, String email, UserType userType, String role) {
@@ -32,6 +72,7 @@ public class JwtUtil {
         Date expiryDate = new Date(now.getTime() + expirationMillis);
 
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString()) // jti: по нему токен отзывается при выходе
                 .setSubject(Integer.toString(userId))
                 .claim("email", email)
                 .claim("userType", userType.toString())
@@ -48,11 +89,7 @@ public class JwtUtil {
             return Optional.empty();
         }
         try {
-            Jws<Claims> jwsClaims = Jwts.parserBuilder()
-                    .setSigningKey(secretKey)
-                    .requireIssuer(issuer)
-                    .build()
-                    .parseClaimsJws(token);
+            Jws<Claims> jwsClaims = parser.parseClaimsJws(token);
             return Optional.of(jwsClaims.getBody());
         } catch (ExpiredJwtException e) {
             logger.warn("JWT token is expired: {}", e.getMessage());
@@ -70,6 +107,64 @@ public class JwtUtil {
         return Optional.empty();
     }
 
+    /**
+     * Проверяет токен и возвращает личность пользователя. Полная проверка (подпись, issuer, срок)
+     * выполняется при первом предъявлении токена, дальше личность берется из кэша до истечения токена.
+     * Токены без userType или role не кэшируются: личность возвращается, но с null в этих полях.
+     */
+    public Optional<TokenIdentity> authenticate(String token) {
+        if (token == null || token.isEmpty()) {
+            return Optional.empty();
+        }
+        String key = digest(token);
+        TokenIdentity cached = verifiedTokens.getIfPresent(key);
+        if (cached != null && cached.getExpiresAtMillis() > System.currentTimeMillis()) {
+            return Optional.of(cached);
+        }
+        Optional<Claims> claims = validateTokenAndGetClaims(token);
+        if (claims.isEmpty()) {
+            return Optional.empty();
+        }
+        int userId;
+        try {
+            userId = getUserIdFromClaims(claims.get());
+        } catch (NumberFormatException e) {
+            // Подпись верна, но subject не является ID пользователя: такой токен недействителен (401), а не ошибка сервера
+            logger.warn("JWT subject is missing or not a user ID: {}", claims.get().getSubject());
+            return Optional.empty();
+        }
+        // Токены, выданные до появления jti, идентифицируются дайджестом
+        String tokenId = claims.get().getId() != null ? claims.get().getId() : key;
+        TokenIdentity identity = new TokenIdentity(tokenId, userId, getEmailFromClaims(claims.get()),
+                getUserTypeFromClaims(claims.get()), getRoleFromClaims(claims.get()), claims.get().getExpiration().getTime());
+        if (identity.getUserType() != null && identity.getRole() != null) {
+            verifiedTokens.put(key, identity);
+        }
+        return Optional.of(identity);
+    }
+
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e); // Обязателен в любой JRE
+        }
+    }
+
+    // Статистика кэша проверенных токенов для консоли ('cache') и /metrics
+    public CacheStats getTokenCacheStats() {
+        return verifiedTokens.stats();
+    }
+
+    public long getTokenCacheSize() {
+        return verifiedTokens.estimatedSize();
+    }
+
+    public void bindMetrics(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, verifiedTokens, "jwt.verified.tokens");
+    }
+
     public UserType getUserTypeFromClaims(Claims claims) {
         String userTypeStr = claims.get("userType", String.class);
         try {
@@ -95,4 +190,30 @@ public class JwtUtil {
     public long getExpirationMillis() {
         return expirationMillis;
     }
+
+    // Личность из проверенного токена; неизменяема, поэтому безопасно разделяется между запросами
+    public static final class TokenIdentity {
+        private final String tokenId;
+        private final int userId;
+        private final String email;
+        private final UserType userType;
+        private final String role;
+        private final long expiresAtMillis;
+
+        TokenIdentity(String tokenId, int userId, String email, UserType userType, String role, long expiresAtMillis) {
+            this.tokenId = tokenId;
+            this.userId = userId;
+            this.email = email;
+            this.userType = userType;
+            this.role = role;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public String getTokenId() { return tokenId; }
+        public int getUserId() { return userId; }
+        public String getEmail() { return email; }
+        public UserType getUserType() { return userType; }
+        public String getRole() { return role; }
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,111 @@
+package org.example.education.util;
+
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jvm.ClassLoaderMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmGcMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.binder.system.ProcessorMetrics;
+import io.micrometer.core.instrument.binder.system.UptimeMetrics;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import io.prometheus.client.exporter.common.TextFormat;
+import spark.route.HttpMethod;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реестр метрик сервера, отдаваемый в формате Prometheus на GET /metrics.
+ * Задержки запросов пишутся в таймер http.server.requests с тегами method, route (шаблон маршрута,
+ * например /api/students/:id, а не конкретный URI), status. Для каждого таймера экспортируются
+ * счетчик, сумма, максимум, бакеты гистограммы (для histogram_quantile по нескольким экземплярам)
+ * и квантили p50/p95/p99, посчитанные по HDR-гистограмме в скользящем окне.
+ * Сюда же пишут метрики SQL-операторов и пула соединений (DatabaseManager).
+ */
+public final class Metrics {
+    public static final String HTTP_REQUESTS = "http.server.requests";
+    private static final String OTHER_METHOD = "OTHER";
+    // Таймеры с гистограммой: SQL-операторы (InstrumentedDataSource) и ожидание соединения из пула Hikari
+    private static final String SQL_STATEMENTS = "db.sql.statements";
+    private static final String POOL_ACQUIRE = "hikaricp.connections.acquire";
+
+    private static final PrometheusMeterRegistry registry = createRegistry();
+
+    private Metrics() {}
+
+    private static PrometheusMeterRegistry createRegistry() {
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        registry.config()
+                .meterFilter(latencyHistogram(HTTP_REQUESTS))
+                .meterFilter(latencyHistogram(SQL_STATEMENTS))
+                .meterFilter(latencyHistogram(POOL_ACQUIRE));
+        // Метрики JVM: heap и пулы памяти, паузы и выделение памяти GC, потоки по состояниям
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmGcMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+        new ClassLoaderMetrics().bindTo(registry);
+        new ProcessorMetrics().bindTo(registry);
+        new UptimeMetrics().bindTo(registry);
+        return registry;
+    }
+
+    /**
+     * Включает гистограмму и квантили для таймера с указанным именем. Границы бакетов
+     * ограничены диапазоном 1 мс - 30 с, чтобы число рядов на маршрут оставалось умеренным.
+     */
+    static MeterFilter latencyHistogram(String timerName) {
+        return new MeterFilter() {
+            @Override
+            public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                if (id.getType() != Meter.Type.TIMER || !id.getName().equals(timerName)) {
+                    return config;
+                }
+                return DistributionStatisticConfig.builder()
+                        .percentilesHistogram(true)
+                        .percentiles(0.5, 0.95, 0.99)
+                        .percentilePrecision(2)
+                        .minimumExpectedValue((double) Duration.ofMillis(1).toNanos())
+                        .maximumExpectedValue((double) Duration.ofSeconds(30).toNanos())
+                        .build()
+                        .merge(config);
+            }
+        };
+    }
+
+    public static MeterRegistry registry() {
+        return registry;
+    }
+
+    /**
+     * Учитывает завершенный HTTP-запрос.
+     * @param route шаблон маршрута из {@link RouteTemplates}.
+     * @param durationNanos время обработки, измеренное через System.nanoTime().
+     */
+    public static void recordRequest(String method, String route, int status, long durationNanos) {
+        registry.timer(HTTP_REQUESTS, "method", methodTag(method), "route", route, "status", String.valueOf(status))
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // Метод запроса задает клиент: произвольные методы сводятся к OTHER, иначе каждый порождал бы новые серии
+    private static String methodTag(String method) {
+        HttpMethod httpMethod = method != null ? HttpMethod.get(method.toLowerCase(Locale.ROOT)) : HttpMethod.unsupported;
+        if (httpMethod == HttpMethod.unsupported || httpMethod == HttpMethod.before
+                || httpMethod == HttpMethod.after || httpMethod == HttpMethod.afterafter) {
+            return OTHER_METHOD;
+        }
+        return httpMethod.name().toUpperCase(Locale.ROOT);
+    }
+
+    public static String scrape() {
+        return registry.scrape();
+    }
+
+    public static String contentType() {
+        return TextFormat.CONTENT_TYPE_004;
+    }
+}
@@ -0,0 +1,125 @@
+package org.example.education.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Timer;
+import org.example.education.config.ServerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Пул для BCrypt: хеширование и проверка пароля стоят сотни миллисекунд CPU, поэтому выполняются
+ * не в потоке запроса, а на отдельных потоках по числу ядер. Очередь ограничена: при всплеске
+ * входов лишние запросы сразу получают 503 (OverloadedException), а остальные эндпоинты
+ * не остаются без процессора. Метрики: auth_hashing_queue_size, auth_hashing_wait_seconds
+ * (время в очереди), auth_hashing_rejected_total.
+ */
+public final class PasswordHashingPool {
+    private static final Logger logger = LoggerFactory.getLogger(PasswordHashingPool.class);
+
+    /** Очередь пула заполнена; App отвечает на него 503 с Retry-After. */
+    public static class OverloadedException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public OverloadedException(String message) {
+            super(message);
+        }
+    }
+
+    private static final ThreadPoolExecutor executor = createExecutor();
+
+    private static final Timer waitTimer = Timer.builder("auth.hashing.wait")
+            .description("Time password hashing tasks spend in the queue")
+            .publishPercentileHistogram()
+            .register(Metrics.registry());
+    private static final Counter rejected = Counter.builder("auth.hashing.rejected")
+            .description("Password hashing tasks rejected because the queue was full")
+            .register(Metrics.registry());
+
+    static {
+        Gauge.builder("auth.hashing.queue.size", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a thread")
+                .register(Metrics.registry());
+        Gauge.builder("auth.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(Metrics.registry());
+    }
+
+    private PasswordHashingPool() {}
+
+    private static ThreadPoolExecutor createExecutor() {
+        int threads = ServerConfig.getAuthHashingThreads();
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "password-hashing-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(ServerConfig.getAuthHashingQueueSize()), threadFactory, new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public static String hashPassword(String plainTextPassword) {
+        return run(() -> PasswordUtil.hashPassword(plainTextPassword));
+    }
+
+    public static boolean checkPassword(String plainTextPassword, String hashedPassword) {
+        return run(() -> PasswordUtil.checkPassword(plainTextPassword, hashedPassword));
+    }
+
+    /**
+     * Хеширует в пуле без ожидания результата (перехеширование после входа не задерживает ответ).
+     * При заполненной очереди future завершается OverloadedException.
+     */
+    public static CompletableFuture<String> hashPasswordAsync(String plainTextPassword) {
+        long enqueuedNanos = System.nanoTime();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                waitTimer.record(System.nanoTime() - enqueuedNanos, TimeUnit.NANOSECONDS);
+                return PasswordUtil.hashPassword(plainTextPassword);
+            }, executor);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            return CompletableFuture.failedFuture(new OverloadedException("Too many concurrent password checks. Please retry."));
+        }
+    }
+
+    /**
+     * Выполняет задачу в пуле и ждет результата в потоке запроса.
+     * @throws OverloadedException если очередь заполнена - задача не ставится в очередь вовсе.
+     */
+    private static <T> T run(Supplier<T> task) {
+        long enqueuedNanos = System.nanoTime();
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                waitTimer.record(System.nanoTime() - enqueuedNanos, TimeUnit.NANOSECONDS);
+                return task.get();
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            logger.warn("Password hashing queue is full ({} tasks), rejecting request.", executor.getQueue().size());
+            throw new OverloadedException("Too many concurrent password checks. Please retry.");
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while hashing password.", e);
+        } catch (ExecutionException e) {
+            // IllegalArgumentException из PasswordUtil пробрасывается как есть: контроллеры отвечают на нее 400
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException("Error hashing password: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    public static void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -4,13 +4,21 @@ import org.mindrot.jbcrypt.BCrypt;
 
 public class PasswordUtil {
 
-    private static final int BCRYPT_WORKLOAD = 12; // Рекомендуемое значение
+    public static final int MIN_COST = 4; // Допустимые стоимости BCrypt.gensalt
+    public static final int MAX_COST = 31;
+
+    private static final int DEFAULT_BCRYPT_WORKLOAD = 12; // Рекомендуемое значение, пока калибровка не выполнена
+    private static final int SAMPLE_WORKLOAD = 8; // Стоимость пробных замеров: ~десятки миллисекунд
+    private static final int SAMPLE_COUNT = 5;
+
+    private static volatile int bcryptWorkload = DEFAULT_BCRYPT_WORKLOAD;
+    private static volatile Calibration calibration;
 
     public static String hashPassword(String plainTextPassword) {
         if (plainTextPassword == null || plainTextPassword.isEmpty()) {
             throw new IllegalArgumentException("Password cannot be null or empty for hashing.");
         }
-        String salt = BCrypt.gensalt(BCRYPT_WORKLOAD);
+        String salt = BCrypt.gensalt(bcryptWorkload);
         return BCrypt.hashpw(plainTextPassword, salt);
     }
 
@@ -24,4 +32,99 @@ public class PasswordUtil {
             return false;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Подбирает стоимость BCrypt под бюджет времени на этом сервере: замеряет хеширование при малой
+     * стоимости (каждая единица стоимости удваивает время) и выбирает наибольшую стоимость в [minCost, maxCost],
+     * которая укладывается в targetMillis. Если даже minCost не укладывается, используется minCost.
+     */
+    public static Calibration calibrate(long targetMillis, int minCost, int maxCost) {
+        // Прогрев JIT, иначе первые замеры завышены в разы
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            BCrypt.hashpw("calibration", BCrypt.gensalt(4));
+        }
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            long start = System.nanoTime();
+            BCrypt.hashpw("calibration", BCrypt.gensalt(SAMPLE_WORKLOAD));
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start); // Минимум меньше всего искажен паузами GC и соседями
+        }
+        double sampleMillis = bestNanos / 1_000_000.0;
+
+        int cost = minCost;
+        while (cost < maxCost && estimateMillis(sampleMillis, cost + 1) <= targetMillis) {
+            cost++;
+        }
+        Calibration result = new Calibration(false, cost, targetMillis, sampleMillis, estimateMillis(sampleMillis, cost));
+        bcryptWorkload = cost;
+        calibration = result;
+        return result;
+    }
+
+    // Стоимость задана в конфигурации явно: калибровка не выполняется
+    public static Calibration useFixedWorkload(int cost) {
+        Calibration result = new Calibration(true, cost, 0, 0, 0);
+        bcryptWorkload = cost;
+        calibration = result;
+        return result;
+    }
+
+    private static double estimateMillis(double sampleMillis, int cost) {
+        return sampleMillis * Math.pow(2, cost - SAMPLE_WORKLOAD);
+    }
+
+    /**
+     * Нужно ли перехешировать пароль после успешного входа. Хеш усиливается, если его стоимость ниже текущей,
+     * и ослабляется, только если она выше maxCost: иначе серверы с разной калибровкой перехешировали бы
+     * пароль при каждом входе то вверх, то вниз. Хеш с текущей стоимостью не пересчитывается, даже если она выше maxCost.
+     */
+    public static boolean needsRehash(String hashedPassword, int maxCost) {
+        int cost = getCost(hashedPassword);
+        int workload = bcryptWorkload;
+        return cost > 0 && (cost < workload || cost > Math.max(maxCost, workload));
+    }
+
+    // Стоимость из хеша вида $2a$12$...; -1, если формат не распознан
+    public static int getCost(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7 || hashedPassword.charAt(0) != '$' || hashedPassword.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public static int getWorkload() {
+        return bcryptWorkload;
+    }
+
+    // null, пока калибровка не выполнялась
+    public static Calibration getCalibration() {
+        return calibration;
+    }
+
+    public static final class Calibration {
+        private final boolean fixed;
+        private final int cost;
+        private final long targetMillis;
+        private final double sampleMillis;
+        private final double estimatedMillis;
+
+        Calibration(boolean fixed, int cost, long targetMillis, double sampleMillis, double estimatedMillis) {
+            this.fixed = fixed;
+            this.cost = cost;
+            this.targetMillis = targetMillis;
+            this.sampleMillis = sampleMillis;
+            this.estimatedMillis = estimatedMillis;
+        }
+
+        public boolean isFixed() { return fixed; }
+        public int getCost() { return cost; }
+        public long getTargetMillis() { return targetMillis; }
+        public double getSampleMillis() { return sampleMillis; }
+        public int getSampleCost() { return SAMPLE_WORKLOAD; }
+        public double getEstimatedMillis() { return estimatedMillis; }
+    }
+}
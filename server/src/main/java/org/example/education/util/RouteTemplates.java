@@ -0,0 +1,93 @@
+package org.example.education.util;
+
+import spark.Spark;
+import spark.route.HttpMethod;
+import spark.routematch.RouteMatch;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Определяет шаблон маршрута Spark (например /api/students/:id) по методу и URI запроса.
+ * Spark не сообщает фильтрам, какой маршрут обработал запрос (request.matchedPath() в after-фильтре
+ * возвращает путь самого фильтра), поэтому после регистрации маршрутов их список снимается один раз
+ * и URI сопоставляется с ним так же, как это делает Spark: по сегментам, в порядке регистрации.
+ * Метки метрик по шаблонам, а не по сырым URI, не дают числу рядов расти с числом ID.
+ */
+public final class RouteTemplates {
+    public static final String NOT_FOUND = "NOT_FOUND";
+    public static final String UNKNOWN = "UNKNOWN"; // Запрос пришел до снятия списка маршрутов
+
+    private static volatile Map<HttpMethod, List<String[]>> routes;
+
+    private RouteTemplates() {}
+
+    /**
+     * Снимает список маршрутов. Вызывается после регистрации всех контроллеров (Spark.awaitInitialization()).
+     */
+    public static void init() {
+        Map<HttpMethod, List<String[]>> byMethod = new EnumMap<>(HttpMethod.class);
+        for (RouteMatch route : Spark.routes()) {
+            HttpMethod method = route.getHttpMethod();
+            if (method == HttpMethod.before || method == HttpMethod.after
+                    || method == HttpMethod.afterafter || method == HttpMethod.unsupported) {
+                continue; // Фильтры не обрабатывают запрос
+            }
+            byMethod.computeIfAbsent(method, m -> new ArrayList<>()).add(split(route.getMatchUri()));
+        }
+        routes = byMethod;
+    }
+
+    public static String resolve(String requestMethod, String uri) {
+        Map<HttpMethod, List<String[]>> snapshot = routes;
+        if (snapshot == null) {
+            return UNKNOWN;
+        }
+        HttpMethod method = HttpMethod.get(requestMethod.toLowerCase());
+        String[] uriParts = split(uri);
+        String template = find(snapshot.getOrDefault(method, Collections.emptyList()), uriParts, uri);
+        if (template == null && method == HttpMethod.head) {
+            // Spark отвечает на HEAD GET-маршрутом, если отдельного HEAD-маршрута нет
+            template = find(snapshot.getOrDefault(HttpMethod.get, Collections.emptyList()), uriParts, uri);
+        }
+        return template != null ? template : NOT_FOUND;
+    }
+
+    private static String find(List<String[]> candidates, String[] uriParts, String uri) {
+        for (String[] route : candidates) {
+            if (matches(route, uriParts, uri)) {
+                return String.join("/", route);
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(String[] route, String[] uriParts, String uri) {
+        boolean wildcardTail = route.length > 0 && route[route.length - 1].equals("*");
+        if (wildcardTail ? uriParts.length < route.length - 1 : uriParts.length != route.length) {
+            return false;
+        }
+        if (!wildcardTail && uri.length() > 1 && uri.endsWith("/")) {
+            return false; // Spark не сопоставляет /a/ с маршрутом /a
+        }
+        for (int i = 0; i < route.length; i++) {
+            if (wildcardTail && i == route.length - 1) {
+                return true;
+            }
+            String part = route[i];
+            if (!part.startsWith(":") && !part.equals("*") && !part.equals(uriParts[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // "/api/students/:id" -> ["", "api", "students", ":id"]; String.join("/", ...) восстанавливает путь
+    private static String[] split(String path) {
+        String trimmed = path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        return trimmed.split("/", -1);
+    }
+}
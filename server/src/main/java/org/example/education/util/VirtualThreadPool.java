@@ -0,0 +1,72 @@
+package org.example.education.util;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Пул потоков Jetty, выполняющий каждую задачу (обработку запроса, селекторы) в новом виртуальном потоке (Java 21+).
+ * Запрос, ожидающий JDBC или файлового ввода-вывода, не занимает платформенный поток, поэтому число
+ * одновременных запросов не ограничено размером пула Jetty; реальным ограничением служит пул соединений Hikari.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+    private final AtomicInteger activeThreads = new AtomicInteger();
+    private ExecutorService executor;
+
+    @Override
+    protected void doStart() throws Exception {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("jetty-vt-", 0).factory());
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (executor == null || executor.isShutdown()) {
+            throw new RejectedExecutionException("Virtual thread pool is not running.");
+        }
+        executor.execute(() -> {
+            activeThreads.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                activeThreads.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        while (executor != null && !executor.awaitTermination(1, TimeUnit.DAYS)) {
+            // Ждем остановки пула
+        }
+    }
+
+    @Override
+    public int getThreads() {
+        return activeThreads.get();
+    }
+
+    @Override
+    public int getIdleThreads() {
+        return 0; // Виртуальные потоки не простаивают в пуле: каждый создается под задачу
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
@@ -1,3 +1,6 @@
+-- V1: исходная схема (таблицы). Идемпотентна, поэтому безопасна и для БД,
+-- созданных вручную прежним скриптом db_schema.sql.
+
 -- Таблица студентов
 CREATE TABLE IF NOT EXISTS students (
     student_id SERIAL PRIMARY KEY,
@@ -49,10 +52,21 @@ CREATE TABLE IF NOT EXISTS employees (
     first_name VARCHAR(100) NOT NULL,
     last_name VARCHAR(100) NOT NULL,
     email VARCHAR(255) UNIQUE NOT NULL,
-    password_hash VARCHAR(255) NOT NULL
+    password_hash VARCHAR(255) NOT NULL,
     role VARCHAR(50) NOT NULL DEFAULT 'ADMIN'
 );
 
+-- Материализованные агрегаты успеваемости по студенту (GPA и счетчики).
+-- Сервер пересчитывает строку студента при изменении его оценок и полностью при старте
+CREATE TABLE IF NOT EXISTS student_grade_summary (
+    student_id INT PRIMARY KEY REFERENCES students(student_id) ON DELETE CASCADE,
+    course_count INT NOT NULL DEFAULT 0,          -- курсы, по которым есть хотя бы одна оценка
+    grade_count INT NOT NULL DEFAULT 0,
+    numeric_grade_count INT NOT NULL DEFAULT 0,   -- оценки, участвующие в GPA
+    gpa NUMERIC(6,2),                             -- среднее числовых оценок, NULL если их нет
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Пример администратора для тестов
 -- Пароль 'adminpass'
 --INSERT INTO employees (first_name, last_name, email, password_hash, role)
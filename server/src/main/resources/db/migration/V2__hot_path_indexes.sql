@@ -0,0 +1,8 @@
+-- migration: no-transaction
+-- V2: индексы по внешним ключам, по которым фильтруют горячие запросы
+-- (GradeDao.findByStudentCourseId, DocumentDao.findByStudentId, EnrollmentDao.findByCourseId).
+-- CONCURRENTLY не блокирует запись в таблицы, но не может выполняться внутри транзакции.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_grades_student_course_id ON grades (student_course_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_documents_student_id ON documents (student_id);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_student_courses_course_id ON student_courses (course_id);
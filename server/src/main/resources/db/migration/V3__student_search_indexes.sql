@@ -0,0 +1,10 @@
+-- migration: no-transaction
+-- V3: индексы для рейтинга группы и поиска студентов
+-- (ILIKE '%...%' и оператор % из pg_trgm используют триграммные GIN-индексы).
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_students_group_name ON students (group_name);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_students_first_name_trgm ON students USING gin (first_name gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_students_last_name_trgm ON students USING gin (last_name gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_students_email_trgm ON students USING gin (email gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_students_group_name_trgm ON students USING gin (group_name gin_trgm_ops);
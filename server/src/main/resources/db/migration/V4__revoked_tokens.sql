@@ -0,0 +1,12 @@
+-- V4: JWT, отозванные при выходе из системы. Запись хранится до истечения токена
+-- (после этого токен отклоняется и так) и удаляется периодической очисткой.
+
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    token_id VARCHAR(64) PRIMARY KEY,
+    expires_at TIMESTAMP NOT NULL,
+    revoked_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Очистка по сроку и догрузка новых отзывов другими экземплярами сервера
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires_at ON revoked_tokens (expires_at);
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_revoked_at ON revoked_tokens (revoked_at);
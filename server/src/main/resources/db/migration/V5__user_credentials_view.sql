@@ -0,0 +1,10 @@
+-- V5: единое представление учетных данных для входа. Поиск по email - один запрос вместо двух
+-- (сначала сотрудники, затем студенты): условие email = ? проталкивается в обе ветви UNION ALL
+-- и выполняется по уникальным индексам employees.email и students.email.
+
+CREATE OR REPLACE VIEW user_credentials AS
+SELECT 'EMPLOYEE'::VARCHAR(20) AS user_type, employee_id AS user_id, email, role, password_hash
+FROM employees
+UNION ALL
+SELECT 'STUDENT'::VARCHAR(20) AS user_type, student_id AS user_id, email, 'STUDENT'::VARCHAR(50) AS role, password_hash
+FROM students;
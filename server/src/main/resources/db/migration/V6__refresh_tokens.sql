@@ -0,0 +1,17 @@
+-- V6: refresh-токены для продления сессии без повторной проверки пароля.
+-- Хранится только SHA-256 токена. Токен одноразовый: при обновлении он помечается использованным
+-- (used_at) и выдается новый токен того же семейства (family_id). Повторное предъявление использованного
+-- токена означает его утечку - тогда удаляется все семейство.
+
+CREATE TABLE IF NOT EXISTS refresh_tokens (
+    token_hash CHAR(64) PRIMARY KEY,
+    family_id UUID NOT NULL,
+    user_type VARCHAR(20) NOT NULL,
+    user_id INT NOT NULL,
+    expires_at TIMESTAMP NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    used_at TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_family_id ON refresh_tokens (family_id);
+CREATE INDEX IF NOT EXISTS idx_refresh_tokens_expires_at ON refresh_tokens (expires_at);
@@ -0,0 +1,6 @@
+-- migration: no-transaction
+-- V7: индекс под порядок списка студентов (last_name, first_name, student_id).
+-- Keyset-страница StudentDao.findPage и потоковая выдача streamAll читают его по порядку
+-- вместо полного просмотра таблицы с сортировкой.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_students_name_order ON students (last_name, first_name, student_id);